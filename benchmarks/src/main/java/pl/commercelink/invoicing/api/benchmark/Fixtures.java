@@ -0,0 +1,58 @@
+package pl.commercelink.invoicing.api.benchmark;
+
+import pl.commercelink.invoicing.api.BillingParty;
+import pl.commercelink.invoicing.api.Invoice;
+import pl.commercelink.invoicing.api.InvoicePosition;
+import pl.commercelink.invoicing.api.Price;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+final class Fixtures {
+
+    static final double[] VAT_RATES = {1.23, 1.23, 1.23, 1.08, 1.05, 1.0};
+
+    static final BillingParty SELLER = BillingParty.company("1", "CommerceLink Sp. z o.o.", "Prosta 1", "00-001", "Warszawa", "PL", "5260000000", "seller");
+    static final BillingParty BUYER = BillingParty.company("2", "Buyer S.A.", "Długa 2", "30-001", "Kraków", "PL", "6760000000", "buyer");
+
+    private Fixtures() {
+    }
+
+    static double[] amounts(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] amounts = new double[count];
+        for (int i = 0; i < count; i++) {
+            amounts[i] = Math.round(random.nextDouble(0.01, 20_000) * 100) / 100.0;
+        }
+        return amounts;
+    }
+
+    static List<InvoicePosition> positions(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<InvoicePosition> positions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double net = Math.round(random.nextDouble(0.01, 5_000) * 100) / 100.0;
+            Price price = Price.fromNet(net, VAT_RATES[random.nextInt(VAT_RATES.length)]);
+            positions.add(new InvoicePosition("pos-" + i, "Product " + i, 1 + random.nextInt(20), price));
+        }
+        return positions;
+    }
+
+    static String orderIds(int count) {
+        StringBuilder orderIds = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                orderIds.append(", ");
+            }
+            orderIds.append("ORD-2024-").append(100_000 + i);
+        }
+        return orderIds.toString();
+    }
+
+    static Invoice invoice(String id, String orderId, List<InvoicePosition> positions) {
+        return new Invoice(id, "FV/" + id, orderId, Price.fromGross(1230), null, "PLN", 1.0, false,
+                LocalDate.of(2024, 1, 31), positions, SELLER, BUYER);
+    }
+}
@@ -0,0 +1,80 @@
+package pl.commercelink.invoicing.api.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.commercelink.invoicing.api.Invoice;
+import pl.commercelink.invoicing.api.InvoiceOrderIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InvoiceBenchmark {
+
+    @Param({"1", "3", "10"})
+    private int ordersPerInvoice;
+
+    private Invoice invoice;
+    private String firstOrderId;
+    private String lastOrderId;
+    private List<Invoice> invoices;
+    private InvoiceOrderIndex index;
+
+    @Setup
+    public void setUp() {
+        invoice = Fixtures.invoice("1", Fixtures.orderIds(ordersPerInvoice), List.of());
+        firstOrderId = "ORD-2024-100000";
+        lastOrderId = "ord-2024-" + (100_000 + ordersPerInvoice - 1);
+        invoices = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            invoices.add(Fixtures.invoice(String.valueOf(i), "ORD-" + i + ", ORD-" + (i + 1), List.of()));
+        }
+        index = InvoiceOrderIndex.of(invoices);
+    }
+
+    @Benchmark
+    public boolean hasOrderIdFirst() {
+        return invoice.hasOrderId(firstOrderId);
+    }
+
+    @Benchmark
+    public boolean hasOrderIdLastIgnoringCase() {
+        return invoice.hasOrderId(lastOrderId);
+    }
+
+    @Benchmark
+    public boolean hasOrderIdMiss() {
+        return invoice.hasOrderId("ORD-MISSING");
+    }
+
+    @Benchmark
+    public int scanThousandInvoices() {
+        int matches = 0;
+        for (Invoice candidate : invoices) {
+            if (candidate.hasOrderId("ORD-500")) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int indexLookup() {
+        return index.invoicesFor("ORD-500").size();
+    }
+}
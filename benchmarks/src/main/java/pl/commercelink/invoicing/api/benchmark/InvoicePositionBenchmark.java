@@ -0,0 +1,45 @@
+package pl.commercelink.invoicing.api.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.commercelink.invoicing.api.InvoicePosition;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InvoicePositionBenchmark {
+
+    @Param({"1", "10", "100", "1000", "5000"})
+    private int positionCount;
+
+    private List<InvoicePosition> positions;
+
+    @Setup
+    public void setUp() {
+        positions = Fixtures.positions(positionCount, 42);
+    }
+
+    @Benchmark
+    public double grossTotal() {
+        double total = 0;
+        for (InvoicePosition position : positions) {
+            total += position.totalPrice().grossValue();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,87 @@
+package pl.commercelink.invoicing.api.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.commercelink.invoicing.api.InvoiceKind;
+import pl.commercelink.invoicing.api.InvoicePosition;
+import pl.commercelink.invoicing.api.InvoiceRequest;
+import pl.commercelink.invoicing.api.SplitPaymentPolicy;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InvoiceRequestBenchmark {
+
+    private static final LocalDate SELL_DATE = LocalDate.of(2024, 1, 31);
+
+    @Param({"1", "100", "5000"})
+    private int positionCount;
+
+    private List<InvoicePosition> positions;
+    private double grossTotal;
+
+    @Setup
+    public void setUp() {
+        positions = Fixtures.positions(positionCount, 42);
+        grossTotal = positions.stream().mapToDouble(position -> position.totalPrice().grossValue()).sum();
+    }
+
+    @Benchmark
+    public InvoiceRequest standardInvoice() {
+        return InvoiceRequest.standardInvoice()
+                .invoiceKind(InvoiceKind.Standard)
+                .orderId("ORD-2024-100000")
+                .sellDate(SELL_DATE)
+                .billingParty(Fixtures.BUYER)
+                .positions(positions)
+                .paymentTerms(14)
+                .splitPaymentsEnabled(SplitPaymentPolicy.isRequired(Fixtures.BUYER, grossTotal, true))
+                .send(true)
+                .build();
+    }
+
+    @Benchmark
+    public InvoiceRequest advanceInvoice() {
+        return InvoiceRequest.advanceInvoice()
+                .orderId("ORD-2024-100000")
+                .wmsOrderNo("WMS-1")
+                .sellDate(SELL_DATE)
+                .paidAmount(grossTotal / 2)
+                .billingParty(Fixtures.BUYER)
+                .send(true)
+                .build();
+    }
+
+    @Benchmark
+    public InvoiceRequest finalInvoice() {
+        return InvoiceRequest.finalInvoice()
+                .orderId("ORD-2024-100000")
+                .wmsOrderNo("WMS-1")
+                .billingParty(Fixtures.BUYER)
+                .leftToPay(grossTotal / 2)
+                .invoiceNumbers(List.of("FV/1/2024", "FV/2/2024"))
+                .send(true)
+                .build();
+    }
+
+    @Benchmark
+    public boolean splitPaymentPolicy() {
+        return SplitPaymentPolicy.isRequired(Fixtures.BUYER, grossTotal, true);
+    }
+}
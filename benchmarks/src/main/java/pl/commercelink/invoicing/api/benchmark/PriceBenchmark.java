@@ -0,0 +1,85 @@
+package pl.commercelink.invoicing.api.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.commercelink.invoicing.api.CompactPrice;
+import pl.commercelink.invoicing.api.Price;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PriceBenchmark {
+
+    private static final int BATCH = 1_024;
+
+    private double[] amounts;
+    private Price[] prices;
+    private CompactPrice[] compactPrices;
+
+    @Setup
+    public void setUp() {
+        amounts = Fixtures.amounts(BATCH, 42);
+        prices = new Price[BATCH];
+        compactPrices = new CompactPrice[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            prices[i] = Price.fromNet(amounts[i], Fixtures.VAT_RATES[i % Fixtures.VAT_RATES.length]);
+            compactPrices[i] = CompactPrice.of(prices[i]);
+        }
+    }
+
+    @Benchmark
+    public void priceFromNet(Blackhole blackhole) {
+        for (double amount : amounts) {
+            blackhole.consume(Price.fromNet(amount));
+        }
+    }
+
+    @Benchmark
+    public void priceFromGross(Blackhole blackhole) {
+        for (double amount : amounts) {
+            blackhole.consume(Price.fromGross(amount));
+        }
+    }
+
+    @Benchmark
+    public void priceTimes(Blackhole blackhole) {
+        for (int i = 0; i < prices.length; i++) {
+            blackhole.consume(prices[i].times(1 + (i & 15)));
+        }
+    }
+
+    @Benchmark
+    public void compactPriceFromNet(Blackhole blackhole) {
+        for (double amount : amounts) {
+            blackhole.consume(CompactPrice.fromNet(amount));
+        }
+    }
+
+    @Benchmark
+    public void compactPriceFromGross(Blackhole blackhole) {
+        for (double amount : amounts) {
+            blackhole.consume(CompactPrice.fromGross(amount));
+        }
+    }
+
+    @Benchmark
+    public void compactPriceTimes(Blackhole blackhole) {
+        for (int i = 0; i < compactPrices.length; i++) {
+            blackhole.consume(compactPrices[i].times(1 + (i & 15)));
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package pl.commercelink.invoicing.api;
+
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit that follows the backend's capacity using AIMD. Every call that completes within the latency
+ * threshold while the limit is at least half used raises the limit by {@code 1/limit}, i.e. by about one per
+ * round of calls; every slower or failed call multiplies it by the backoff ratio, so a backend that throttles by
+ * failing fast is backed off from like one that slows down. Calls over the limit queue for at most
+ * {@code maxWait}, and no more than {@code maxQueued} may wait; otherwise {@link BulkheadRejectedException} is thrown.
+ */
+public final class AdaptiveLimiter {
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final long maxWaitNanos;
+    private final int maxQueued;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitAvailable = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private int queued;
+
+    private AdaptiveLimiter(Builder builder) {
+        this.name = builder.name;
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.latencyThresholdNanos = builder.latencyThreshold.toNanos();
+        this.backoffRatio = builder.backoffRatio;
+        this.maxWaitNanos = builder.maxWait.toNanos();
+        this.maxQueued = builder.maxQueued;
+        this.limit = builder.initialLimit;
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /** Waits for a permit and returns the start time to pass to {@link #release}. */
+    public long acquire() {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return System.nanoTime();
+            }
+            if (queued >= maxQueued) {
+                throw new BulkheadRejectedException(name + ": " + queued + " calls already queued");
+            }
+            queued++;
+            try {
+                long remaining = maxWaitNanos;
+                while (inFlight >= (int) limit) {
+                    if (remaining <= 0) {
+                        throw new BulkheadRejectedException(name + ": no permit within " + Duration.ofNanos(maxWaitNanos));
+                    }
+                    remaining = permitAvailable.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BulkheadRejectedException(name + ": interrupted while queued");
+            } finally {
+                queued--;
+            }
+            inFlight++;
+            return System.nanoTime();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Releases a permit; {@code success} is false when the call failed, which backs the limit off. */
+    public void release(long start, boolean success) {
+        release(start, System.nanoTime(), success);
+    }
+
+    /** Releases a permit, sampling {@code end - start} as the latency; for permits held longer than the call itself. */
+    public void release(long start, long end, boolean success) {
+        long latency = end - start;
+        lock.lock();
+        try {
+            boolean utilized = inFlight >= limit / 2;
+            inFlight--;
+            if (!success || latency > latencyThresholdNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (utilized) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            if (inFlight < (int) limit) {
+                permitAvailable.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public static class Builder {
+        private final String name;
+        private int initialLimit = 10;
+        private int minLimit = 1;
+        private int maxLimit = 200;
+        private Duration latencyThreshold = Duration.ofSeconds(2);
+        private double backoffRatio = 0.9;
+        private Duration maxWait = Duration.ofSeconds(1);
+        private int maxQueued = 1_000;
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        public Builder initialLimit(int initialLimit) { this.initialLimit = initialLimit; return this; }
+        public Builder minLimit(int minLimit) { this.minLimit = minLimit; return this; }
+        public Builder maxLimit(int maxLimit) { this.maxLimit = maxLimit; return this; }
+        public Builder latencyThreshold(Duration latencyThreshold) { this.latencyThreshold = latencyThreshold; return this; }
+        public Builder backoffRatio(double backoffRatio) { this.backoffRatio = backoffRatio; return this; }
+        public Builder maxWait(Duration maxWait) { this.maxWait = maxWait; return this; }
+        public Builder maxQueued(int maxQueued) { this.maxQueued = maxQueued; return this; }
+
+        public AdaptiveLimiter build() {
+            if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+                throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max: " + minLimit + ", " + initialLimit + ", " + maxLimit);
+            }
+            if (backoffRatio <= 0 || backoffRatio >= 1) {
+                throw new IllegalArgumentException("backoffRatio must be between 0 and 1: " + backoffRatio);
+            }
+            return new AdaptiveLimiter(this);
+        }
+    }
+}
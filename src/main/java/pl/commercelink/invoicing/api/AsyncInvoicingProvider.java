@@ -0,0 +1,50 @@
+package pl.commercelink.invoicing.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/** Non-blocking counterpart of {@link InvoicingProvider}; results and nullability follow the synchronous methods. */
+public interface AsyncInvoicingProvider {
+
+    CompletableFuture<Invoice> createInvoice(InvoiceRequest request);
+
+    CompletableFuture<List<InvoiceCreationResult>> createInvoices(Collection<InvoiceRequest> requests);
+
+    CompletableFuture<Invoice> fetchInvoiceById(String invoiceId, InvoiceDirection direction);
+
+    CompletableFuture<List<Invoice>> fetchInvoicesByOrderId(String orderId, InvoiceDirection direction);
+
+    CompletableFuture<Map<String, Invoice>> fetchInvoicesByIds(Collection<String> invoiceIds, InvoiceDirection direction);
+
+    CompletableFuture<Map<String, List<Invoice>>> fetchInvoicesByOrderIds(Collection<String> orderIds, InvoiceDirection direction);
+
+    CompletableFuture<InvoicePage> fetchInvoicePage(InvoiceQuery query, String pageToken);
+
+    CompletableFuture<InvoiceChanges> fetchInvoiceChanges(InvoiceDirection direction, String watermark, int limit);
+
+    CompletableFuture<byte[]> fetchInvoicePdf(String invoiceId);
+
+    /** Completes with the number of bytes written, or -1 if there is no PDF; an {@link IOException} completes it exceptionally. */
+    CompletableFuture<Long> writeInvoicePdf(String invoiceId, OutputStream out);
+
+    CompletableFuture<Long> transferInvoicePdf(String invoiceId, WritableByteChannel target);
+
+    CompletableFuture<InputStream> openInvoicePdf(String invoiceId);
+
+    CompletableFuture<BillingParty> fetchCostCenterById(String costCenterId);
+
+    CompletableFuture<BillingParty> fetchBillingPartyById(String billingPartyId);
+
+    CompletableFuture<BillingParty> fetchBillingPartyByShortcut(String billingPartyShortcut);
+
+    /** Runs the calls of a synchronous provider on virtual threads, with at most {@code maxConcurrency} in flight. */
+    static AsyncInvoicingProvider onVirtualThreads(InvoicingProvider provider, int maxConcurrency) {
+        return new VirtualThreadInvoicingProvider(provider, maxConcurrency);
+    }
+}
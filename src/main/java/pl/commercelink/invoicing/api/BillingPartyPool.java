@@ -0,0 +1,56 @@
+package pl.commercelink.invoicing.api;
+
+/**
+ * Deduplicates {@link BillingParty} instances so that large invoice working sets hold one copy of each distinct
+ * seller and buyer. The strings most often shared between different parties (name, postal code, city and country)
+ * are deduplicated as well. Canonical instances are held weakly and the pool is safe for concurrent use,
+ * so providers can share one pool when mapping backend responses.
+ */
+public final class BillingPartyPool {
+
+    private final WeakInterner<BillingParty> parties = new WeakInterner<>();
+    private final WeakInterner<String> strings = new WeakInterner<>();
+
+    /** Returns the canonical instance equal to the party, or null for null. */
+    public BillingParty intern(BillingParty party) {
+        if (party == null) {
+            return null;
+        }
+        BillingParty canonical = parties.get(party);
+        if (canonical != null) {
+            return canonical;
+        }
+        return parties.intern(new BillingParty(
+                party.id(),
+                intern(party.name()),
+                party.surname(),
+                party.company(),
+                party.streetAndNumber(),
+                intern(party.postalCode()),
+                intern(party.city()),
+                intern(party.country()),
+                party.taxNo(),
+                party.shortcut()));
+    }
+
+    /** Returns the invoice with its seller and buyer replaced by their canonical instances. */
+    public Invoice intern(Invoice invoice) {
+        BillingParty seller = intern(invoice.seller());
+        BillingParty buyer = intern(invoice.buyer());
+        if (seller == invoice.seller() && buyer == invoice.buyer()) {
+            return invoice;
+        }
+        return new Invoice(invoice.id(), invoice.number(), invoice.orderId(), invoice.amount(), invoice.viewUrl(),
+                invoice.currency(), invoice.exchangeRate(), invoice.paid(), invoice.paymentToDate(), invoice.positions(),
+                seller, buyer);
+    }
+
+    /** Number of distinct parties currently held. */
+    public int size() {
+        return parties.size();
+    }
+
+    private String intern(String value) {
+        return value != null ? strings.intern(value) : null;
+    }
+}
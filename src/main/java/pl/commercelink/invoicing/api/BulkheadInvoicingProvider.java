@@ -0,0 +1,195 @@
+package pl.commercelink.invoicing.api;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounds the concurrency of calls into one provider with three independent {@link AdaptiveLimiter} budgets:
+ * invoice creation, reads, and PDF retrieval. A slow PDF endpoint therefore cannot starve checkout, and each budget
+ * settles near what its part of the backend can actually serve instead of piling callers up under overload.
+ * Batch calls are split into single calls that each take a permit, so a large batch neither bypasses the limit
+ * nor reports its total duration as one slow call; a backend bulk endpoint is therefore not used behind a bulkhead.
+ * A call that throws counts against its budget like a slow one, so a backend that rejects calls straight away under
+ * load is backed off from instead of rewarded for answering fast.
+ */
+public class BulkheadInvoicingProvider extends ForwardingInvoicingProvider {
+
+    private final AdaptiveLimiter creates;
+    private final AdaptiveLimiter reads;
+    private final AdaptiveLimiter pdfs;
+
+    public BulkheadInvoicingProvider(InvoicingProvider delegate, AdaptiveLimiter creates, AdaptiveLimiter reads, AdaptiveLimiter pdfs) {
+        super(delegate);
+        this.creates = creates;
+        this.reads = reads;
+        this.pdfs = pdfs;
+    }
+
+    /** Uses default limiter settings for all three budgets. */
+    public BulkheadInvoicingProvider(InvoicingProvider delegate) {
+        this(delegate,
+                AdaptiveLimiter.builder("create").build(),
+                AdaptiveLimiter.builder("read").build(),
+                AdaptiveLimiter.builder("pdf").build());
+    }
+
+    @Override
+    public Invoice createInvoice(InvoiceRequest request) {
+        return limited(creates, () -> delegate.createInvoice(request));
+    }
+
+    /** Creates each invoice through {@link #createInvoice}, so every request takes its own permit; a rejection fails only that request. */
+    @Override
+    public List<InvoiceCreationResult> createInvoices(Collection<InvoiceRequest> requests) {
+        return ParallelCalls.map(requests, DEFAULT_BATCH_CONCURRENCY, request -> {
+            try {
+                return InvoiceCreationResult.success(request, createInvoice(request));
+            } catch (RuntimeException e) {
+                return InvoiceCreationResult.failure(request, e);
+            }
+        });
+    }
+
+    @Override
+    public Invoice fetchInvoiceById(String invoiceId, InvoiceDirection direction) {
+        return limited(reads, () -> delegate.fetchInvoiceById(invoiceId, direction));
+    }
+
+    @Override
+    public List<Invoice> fetchInvoicesByOrderId(String orderId, InvoiceDirection direction) {
+        return limited(reads, () -> delegate.fetchInvoicesByOrderId(orderId, direction));
+    }
+
+    /** Looks up each invoice through {@link #fetchInvoiceById}, so every lookup takes its own permit. */
+    @Override
+    public Map<String, Invoice> fetchInvoicesByIds(Collection<String> invoiceIds, InvoiceDirection direction) {
+        return ParallelCalls.mapByKey(invoiceIds, DEFAULT_BATCH_CONCURRENCY, invoiceId -> fetchInvoiceById(invoiceId, direction));
+    }
+
+    /** Looks up each order through {@link #fetchInvoicesByOrderId}, so every lookup takes its own permit. */
+    @Override
+    public Map<String, List<Invoice>> fetchInvoicesByOrderIds(Collection<String> orderIds, InvoiceDirection direction) {
+        return ParallelCalls.mapByKey(orderIds, DEFAULT_BATCH_CONCURRENCY,
+                orderId -> Objects.requireNonNullElse(fetchInvoicesByOrderId(orderId, direction), List.of()));
+    }
+
+    @Override
+    public InvoicePage fetchInvoicePage(InvoiceQuery query, String pageToken) {
+        return limited(reads, () -> delegate.fetchInvoicePage(query, pageToken));
+    }
+
+    @Override
+    public InvoiceChanges fetchInvoiceChanges(InvoiceDirection direction, String watermark, int limit) {
+        return limited(reads, () -> delegate.fetchInvoiceChanges(direction, watermark, limit));
+    }
+
+    @Override
+    public byte[] fetchInvoicePdf(String invoiceId) {
+        return limited(pdfs, () -> delegate.fetchInvoicePdf(invoiceId));
+    }
+
+    @Override
+    public long writeInvoicePdf(String invoiceId, OutputStream out) throws IOException {
+        return limited(pdfs, () -> delegate.writeInvoicePdf(invoiceId, out));
+    }
+
+    @Override
+    public long transferInvoicePdf(String invoiceId, WritableByteChannel target) throws IOException {
+        return limited(pdfs, () -> delegate.transferInvoicePdf(invoiceId, target));
+    }
+
+    /** The permit is held until the returned stream is closed; the latency sampled is the time to open it. */
+    @Override
+    public InputStream openInvoicePdf(String invoiceId) throws IOException {
+        long start = pdfs.acquire();
+        InputStream pdf = null;
+        boolean success = false;
+        try {
+            pdf = delegate.openInvoicePdf(invoiceId);
+            success = true;
+        } finally {
+            if (pdf == null) {
+                pdfs.release(start, success);
+            }
+        }
+        return pdf != null ? new PermitReleasingInputStream(pdf, pdfs, start, System.nanoTime()) : null;
+    }
+
+    @Override
+    public BillingParty fetchCostCenterById(String costCenterId) {
+        return limited(reads, () -> delegate.fetchCostCenterById(costCenterId));
+    }
+
+    @Override
+    public BillingParty fetchBillingPartyById(String billingPartyId) {
+        return limited(reads, () -> delegate.fetchBillingPartyById(billingPartyId));
+    }
+
+    @Override
+    public BillingParty fetchBillingPartyByShortcut(String billingPartyShortcut) {
+        return limited(reads, () -> delegate.fetchBillingPartyByShortcut(billingPartyShortcut));
+    }
+
+    /** Runs the call under a permit and reports a failed call to the limiter, so fast failures back it off too. */
+    private static <T, E extends Exception> T limited(AdaptiveLimiter limiter, Call<T, E> call) throws E {
+        long start = limiter.acquire();
+        boolean success = false;
+        try {
+            T result = call.call();
+            success = true;
+            return result;
+        } finally {
+            limiter.release(start, success);
+        }
+    }
+
+    public AdaptiveLimiter createLimiter() {
+        return creates;
+    }
+
+    public AdaptiveLimiter readLimiter() {
+        return reads;
+    }
+
+    public AdaptiveLimiter pdfLimiter() {
+        return pdfs;
+    }
+
+    private static final class PermitReleasingInputStream extends FilterInputStream {
+        private final AdaptiveLimiter limiter;
+        private final long start;
+        private final long opened;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        PermitReleasingInputStream(InputStream in, AdaptiveLimiter limiter, long start, long opened) {
+            super(in);
+            this.limiter = limiter;
+            this.start = start;
+            this.opened = opened;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    limiter.release(start, opened, true);
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+}
@@ -0,0 +1,11 @@
+package pl.commercelink.invoicing.api;
+
+/** Thrown when a call cannot get a concurrency permit within its queueing deadline. */
+public class BulkheadRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public BulkheadRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,121 @@
+package pl.commercelink.invoicing.api;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Caches cost center and billing party lookups of the wrapped provider. Entries are evicted in LRU order once
+ * {@code maximumSize} is reached and expire after {@code ttl}; {@code null} answers are cached for {@code negativeTtl}.
+ * Shortcut lookups are resolved through a shortcut to id index, so a party fetched by shortcut also serves
+ * later lookups by id and vice versa.
+ */
+public class CachingInvoicingProvider extends ForwardingInvoicingProvider {
+
+    private final ExpiringCache<String, BillingParty> costCenters;
+    private final ExpiringCache<String, BillingParty> billingParties;
+    private final ExpiringCache<String, String> shortcuts;
+
+    private CachingInvoicingProvider(Builder builder) {
+        super(builder.delegate);
+        long ttl = builder.ttl.toNanos();
+        long negativeTtl = builder.negativeTtl.toNanos();
+        this.costCenters = new ExpiringCache<>(builder.maximumSize, ttl, negativeTtl, builder.ticker);
+        this.billingParties = new ExpiringCache<>(builder.maximumSize, ttl, negativeTtl, builder.ticker);
+        this.shortcuts = new ExpiringCache<>(builder.maximumSize, ttl, negativeTtl, builder.ticker);
+    }
+
+    public static Builder builder(InvoicingProvider delegate) {
+        return new Builder(delegate);
+    }
+
+    @Override
+    public BillingParty fetchCostCenterById(String costCenterId) {
+        ExpiringCache.Entry<BillingParty> cached = costCenters.get(costCenterId);
+        if (cached != null) {
+            return cached.value();
+        }
+        BillingParty costCenter = delegate.fetchCostCenterById(costCenterId);
+        costCenters.put(costCenterId, costCenter);
+        return costCenter;
+    }
+
+    @Override
+    public BillingParty fetchBillingPartyById(String billingPartyId) {
+        ExpiringCache.Entry<BillingParty> cached = billingParties.get(billingPartyId);
+        if (cached != null) {
+            return cached.value();
+        }
+        BillingParty billingParty = delegate.fetchBillingPartyById(billingPartyId);
+        billingParties.put(billingPartyId, billingParty);
+        if (billingParty != null && billingParty.hasShortcut()) {
+            shortcuts.put(billingParty.shortcut(), billingPartyId);
+        }
+        return billingParty;
+    }
+
+    @Override
+    public BillingParty fetchBillingPartyByShortcut(String billingPartyShortcut) {
+        ExpiringCache.Entry<String> cachedId = shortcuts.get(billingPartyShortcut);
+        if (cachedId != null) {
+            if (cachedId.value() == null) {
+                return null;
+            }
+            ExpiringCache.Entry<BillingParty> cached = billingParties.get(cachedId.value());
+            if (cached != null && cached.value() != null && billingPartyShortcut.equals(cached.value().shortcut())) {
+                return cached.value();
+            }
+        }
+        BillingParty billingParty = delegate.fetchBillingPartyByShortcut(billingPartyShortcut);
+        if (billingParty == null) {
+            shortcuts.put(billingPartyShortcut, null);
+        } else if (billingParty.id() != null) {
+            billingParties.put(billingParty.id(), billingParty);
+            shortcuts.put(billingPartyShortcut, billingParty.id());
+        }
+        return billingParty;
+    }
+
+    public void invalidateCostCenter(String costCenterId) {
+        costCenters.invalidate(costCenterId);
+    }
+
+    /** Drops the party and every shortcut that resolves to it. */
+    public void invalidateBillingParty(String billingPartyId) {
+        billingParties.invalidate(billingPartyId);
+        shortcuts.invalidateValue(billingPartyId);
+    }
+
+    public void invalidateBillingPartyShortcut(String billingPartyShortcut) {
+        shortcuts.invalidate(billingPartyShortcut);
+    }
+
+    public void invalidateAll() {
+        costCenters.invalidateAll();
+        billingParties.invalidateAll();
+        shortcuts.invalidateAll();
+    }
+
+    public static class Builder {
+        private final InvoicingProvider delegate;
+        private int maximumSize = 10_000;
+        private Duration ttl = Duration.ofMinutes(10);
+        private Duration negativeTtl = Duration.ofMinutes(1);
+        private LongSupplier ticker = System::nanoTime;
+
+        private Builder(InvoicingProvider delegate) {
+            this.delegate = delegate;
+        }
+
+        public Builder maximumSize(int maximumSize) { this.maximumSize = maximumSize; return this; }
+        public Builder ttl(Duration ttl) { this.ttl = ttl; return this; }
+        public Builder negativeTtl(Duration negativeTtl) { this.negativeTtl = negativeTtl; return this; }
+        Builder ticker(LongSupplier ticker) { this.ticker = ticker; return this; }
+
+        public CachingInvoicingProvider build() {
+            if (maximumSize < 1) {
+                throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+            }
+            return new CachingInvoicingProvider(this);
+        }
+    }
+}
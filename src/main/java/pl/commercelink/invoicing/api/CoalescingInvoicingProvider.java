@@ -0,0 +1,70 @@
+package pl.commercelink.invoicing.api;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent identical invoice reads into one backend call. The first caller for a given id or order id
+ * and {@link InvoiceDirection} performs the call; callers arriving while it is in flight wait for it and receive the
+ * same result or exception. Nothing is kept once the call completes, so a later caller always gets a fresh read.
+ * Coalesced callers share the returned objects and must not modify them.
+ */
+public class CoalescingInvoicingProvider extends ForwardingInvoicingProvider {
+
+    private record Key(InvoicingOperation operation, String id, InvoiceDirection direction) {
+    }
+
+    private final ConcurrentHashMap<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    public CoalescingInvoicingProvider(InvoicingProvider delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public Invoice fetchInvoiceById(String invoiceId, InvoiceDirection direction) {
+        return coalesce(new Key(InvoicingOperation.FetchInvoiceById, invoiceId, direction),
+                () -> delegate.fetchInvoiceById(invoiceId, direction));
+    }
+
+    @Override
+    public List<Invoice> fetchInvoicesByOrderId(String orderId, InvoiceDirection direction) {
+        return coalesce(new Key(InvoicingOperation.FetchInvoicesByOrderId, orderId, direction),
+                () -> delegate.fetchInvoicesByOrderId(orderId, direction));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T coalesce(Key key, Supplier<T> call) {
+        CompletableFuture<Object> pending = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            return (T) await(existing);
+        }
+        try {
+            T result = call.get();
+            inFlight.remove(key, pending);
+            pending.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, pending);
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
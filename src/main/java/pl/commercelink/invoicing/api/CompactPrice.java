@@ -0,0 +1,177 @@
+package pl.commercelink.invoicing.api;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Objects;
+
+/**
+ * Allocation-light counterpart of {@link Price}. Net and gross are kept as long minor units (grosze, cents)
+ * and the VAT rate points into a shared rate table, so arithmetic does not create intermediate objects.
+ * Rounding is HALF_UP to two decimal places, exactly as in {@link Price}, and conversion in both directions
+ * is lossless. Operations throw {@link ArithmeticException} if a result does not fit in long minor units.
+ */
+public final class CompactPrice {
+
+    private static final double FAST_PATH_LIMIT = 1e9;
+    private static final double HALF_UP_TOLERANCE = 1e-4;
+
+    private final long netMinorUnits;
+    private final long grossMinorUnits;
+    private final VatRateTable.Rate vatRate;
+    private final String currency;
+
+    private CompactPrice(long netMinorUnits, long grossMinorUnits, VatRateTable.Rate vatRate, String currency) {
+        this.netMinorUnits = netMinorUnits;
+        this.grossMinorUnits = grossMinorUnits;
+        this.vatRate = vatRate;
+        this.currency = currency;
+    }
+
+    public static CompactPrice fromNet(double priceNet) {
+        return fromNet(priceNet, Price.DEFAULT_VAT_RATE);
+    }
+
+    public static CompactPrice fromNet(double priceNet, double vatRate) {
+        VatRateTable.Rate rate = VatRateTable.rate(vatRate);
+        long net = toMinorUnits(priceNet);
+        return new CompactPrice(net, grossFromNet(net, rate), rate, Price.DEFAULT_CURRENCY);
+    }
+
+    public static CompactPrice fromGross(double priceGross) {
+        return fromGross(priceGross, Price.DEFAULT_VAT_RATE);
+    }
+
+    public static CompactPrice fromGross(double priceGross, double vatRate) {
+        VatRateTable.Rate rate = VatRateTable.rate(vatRate);
+        long gross = toMinorUnits(priceGross);
+        return new CompactPrice(netFromGross(gross, rate), gross, rate, Price.DEFAULT_CURRENCY);
+    }
+
+    public static CompactPrice ofMinorUnits(long netMinorUnits, long grossMinorUnits, double vatRate, String currency) {
+        return new CompactPrice(netMinorUnits, grossMinorUnits, VatRateTable.rate(vatRate), currency);
+    }
+
+    public static CompactPrice of(Price price) {
+        return new CompactPrice(
+                minorUnits(price.netDecimal()),
+                minorUnits(price.grossDecimal()),
+                VatRateTable.rate(price.vatRateDecimal()),
+                price.currency());
+    }
+
+    static CompactPrice ofMinorUnits(long netMinorUnits, long grossMinorUnits, VatRateTable.Rate vatRate, String currency) {
+        return new CompactPrice(netMinorUnits, grossMinorUnits, vatRate, currency);
+    }
+
+    public Price toPrice() {
+        return new Price(BigDecimal.valueOf(netMinorUnits, 2), BigDecimal.valueOf(grossMinorUnits, 2), vatRate.decimal, currency);
+    }
+
+    public CompactPrice times(int quantity) {
+        return new CompactPrice(
+                Math.multiplyExact(netMinorUnits, quantity),
+                Math.multiplyExact(grossMinorUnits, quantity),
+                vatRate, currency);
+    }
+
+    public long netMinorUnits() {
+        return netMinorUnits;
+    }
+
+    public long grossMinorUnits() {
+        return grossMinorUnits;
+    }
+
+    public double netValue() {
+        return netMinorUnits / 100.0;
+    }
+
+    public double grossValue() {
+        return grossMinorUnits / 100.0;
+    }
+
+    public double vatRate() {
+        return vatRate.value;
+    }
+
+    public int vatRatePercent() {
+        return vatRate.percent;
+    }
+
+    public String currency() {
+        return currency;
+    }
+
+    VatRateTable.Rate rate() {
+        return vatRate;
+    }
+
+    /** Same result as {@code BigDecimal.valueOf(value).setScale(2, HALF_UP)}, without allocating in the common case. */
+    static long toMinorUnits(double value) {
+        double abs = Math.abs(value);
+        if (abs < FAST_PATH_LIMIT) {
+            double scaled = abs * 100;
+            double fraction = scaled - Math.floor(scaled);
+            if (Math.abs(fraction - 0.5) > HALF_UP_TOLERANCE) {
+                long minor = (long) Math.floor(scaled + 0.5);
+                return value < 0 ? -minor : minor;
+            }
+        }
+        return minorUnits(BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP));
+    }
+
+    static long grossFromNet(long netMinorUnits, VatRateTable.Rate rate) {
+        if (rate.isExact()) {
+            long product = netMinorUnits * rate.unscaled;
+            if (Math.multiplyHigh(netMinorUnits, rate.unscaled) == (product >> 63)) {
+                return divideHalfUp(product, rate.scaleFactor);
+            }
+        }
+        return minorUnits(BigDecimal.valueOf(netMinorUnits, 2).multiply(rate.decimal).setScale(2, RoundingMode.HALF_UP));
+    }
+
+    static long netFromGross(long grossMinorUnits, VatRateTable.Rate rate) {
+        if (rate.isExact()) {
+            long dividend = grossMinorUnits * rate.scaleFactor;
+            if (Math.multiplyHigh(grossMinorUnits, rate.scaleFactor) == (dividend >> 63)) {
+                return divideHalfUp(dividend, rate.unscaled);
+            }
+        }
+        return minorUnits(BigDecimal.valueOf(grossMinorUnits, 2).divide(rate.decimal, 2, RoundingMode.HALF_UP));
+    }
+
+    static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = Math.abs(dividend % divisor);
+        if (remainder >= divisor - remainder) {
+            quotient += Long.signum(dividend);
+        }
+        return quotient;
+    }
+
+    private static long minorUnits(BigDecimal value) {
+        return value.movePointRight(2).longValueExact();
+    }
+
+    @Override
+    public String toString() {
+        return "CompactPrice{" +
+                "net=" + BigDecimal.valueOf(netMinorUnits, 2) +
+                ", gross=" + BigDecimal.valueOf(grossMinorUnits, 2) +
+                ", vatRate=" + vatRate.decimal +
+                ", currency='" + currency + '\'' +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        CompactPrice that = (CompactPrice) o;
+        return netMinorUnits == that.netMinorUnits && grossMinorUnits == that.grossMinorUnits && vatRate == that.vatRate && Objects.equals(currency, that.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(netMinorUnits, grossMinorUnits, vatRate.index, currency);
+    }
+}
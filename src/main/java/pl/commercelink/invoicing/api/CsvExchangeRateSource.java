@@ -0,0 +1,52 @@
+package pl.commercelink.invoicing.api;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Reads rates from a CSV file with lines of {@code date,currency,rate}, e.g. {@code 2024-03-01,EUR,4.3215}.
+ * Blank lines, lines starting with {@code #} and a {@code date,...} header are skipped.
+ */
+public class CsvExchangeRateSource implements ExchangeRateSource {
+
+    private final Path file;
+
+    public CsvExchangeRateSource(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public ExchangeRateTable load() {
+        ExchangeRateTable.Builder builder = ExchangeRateTable.builder();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#") || line.regionMatches(true, 0, "date,", 0, 5)) {
+                    continue;
+                }
+                String[] columns = line.split(",");
+                if (columns.length != 3) {
+                    throw new IllegalArgumentException(file + ":" + lineNumber + ": expected date,currency,rate but was: " + line);
+                }
+                try {
+                    builder.rate(columns[1].strip(), LocalDate.parse(columns[0].strip()), new BigDecimal(columns[2].strip()));
+                } catch (DateTimeParseException | NumberFormatException e) {
+                    throw new IllegalArgumentException(file + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,107 @@
+package pl.commercelink.invoicing.api;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts prices between currencies with the rates of an {@link ExchangeRateTable}. The table is an immutable snapshot
+ * held in a volatile field: conversions read it without locking, and {@link #refresh} swaps in a new one. A batch reads
+ * the snapshot once, so every price in it is converted with the same rates. Net and gross are each multiplied exactly
+ * and rounded once, HALF_UP to two decimal places; the VAT rate is kept.
+ */
+public class CurrencyConverter {
+
+    private final ExchangeRateSource source;
+    private volatile ExchangeRateTable table;
+
+    public CurrencyConverter(ExchangeRateSource source) {
+        this.source = source;
+        this.table = source.load();
+    }
+
+    /** Reloads the rates from the source; conversions in progress finish with the previous snapshot. */
+    public void refresh() {
+        table = source.load();
+    }
+
+    public ExchangeRateTable table() {
+        return table;
+    }
+
+    public Price convert(Price price, String currency, LocalDate date) {
+        return convert(table, price, currency, date);
+    }
+
+    /** Converts every price with one rate snapshot and returns the results in input order. */
+    public List<Price> convert(List<Price> prices, String currency, LocalDate date) {
+        ExchangeRateTable snapshot = table;
+        List<Price> converted = new ArrayList<>(prices.size());
+        for (Price price : prices) {
+            converted.add(convert(snapshot, price, currency, date));
+        }
+        return converted;
+    }
+
+    /**
+     * Converts the amount of every invoice with one rate snapshot and returns the results in input order. An invoice
+     * that carries its own {@link Invoice#exchangeRate()} for its currency is converted from that rate, as it was
+     * booked; the table rates on {@code date} are used for everything else.
+     */
+    public List<Price> convertAmounts(List<Invoice> invoices, String currency, LocalDate date) {
+        ExchangeRateTable snapshot = table;
+        List<Price> converted = new ArrayList<>(invoices.size());
+        for (Invoice invoice : invoices) {
+            Price amount = invoice.amount();
+            if (amount == null) {
+                converted.add(null);
+                continue;
+            }
+            if (amount.currency() == null) {
+                throw new IllegalArgumentException("Invoice " + invoice.id() + " has an amount without currency");
+            }
+            BigDecimal from = invoice.exchangeRate() > 0 && amount.currency().equals(invoice.currency())
+                    ? BigDecimal.valueOf(invoice.exchangeRate())
+                    : null;
+            converted.add(convert(snapshot, amount, currency, date, from));
+        }
+        return converted;
+    }
+
+    public Price toDefaultCurrency(Price price, LocalDate date) {
+        return convert(price, Price.DEFAULT_CURRENCY, date);
+    }
+
+    private static Price convert(ExchangeRateTable table, Price price, String currency, LocalDate date) {
+        if (price.currency() == null) {
+            throw new IllegalArgumentException("Price has no currency: " + price);
+        }
+        return convert(table, price, currency, date, null);
+    }
+
+    /** {@code from} overrides the table rate of the price currency when not null. */
+    private static Price convert(ExchangeRateTable table, Price price, String currency, LocalDate date, BigDecimal from) {
+        if (currency.equals(price.currency())) {
+            return price;
+        }
+        if (from == null) {
+            from = requireRate(table, price.currency(), date);
+        }
+        BigDecimal to = requireRate(table, currency, date);
+        return new Price(
+                price.netDecimal().multiply(from).divide(to, 2, RoundingMode.HALF_UP),
+                price.grossDecimal().multiply(from).divide(to, 2, RoundingMode.HALF_UP),
+                price.vatRateDecimal(),
+                currency);
+    }
+
+    private static BigDecimal requireRate(ExchangeRateTable table, String currency, LocalDate date) {
+        BigDecimal rate = table.rate(currency, date);
+        if (rate == null) {
+            throw new IllegalArgumentException("No " + currency + " exchange rate on or before " + date);
+        }
+        return rate;
+    }
+}
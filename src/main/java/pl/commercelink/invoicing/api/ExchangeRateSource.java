@@ -0,0 +1,8 @@
+package pl.commercelink.invoicing.api;
+
+/** Supplies the exchange rates used by a {@link CurrencyConverter}, e.g. from a file or a central bank API. */
+@FunctionalInterface
+public interface ExchangeRateSource {
+
+    ExchangeRateTable load();
+}
@@ -0,0 +1,95 @@
+package pl.commercelink.invoicing.api;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of exchange rates, as the price of one unit of a currency in {@link Price#DEFAULT_CURRENCY}.
+ * Each currency keeps its rates sorted by date, and a lookup returns the rate of the latest date on or before
+ * the requested one, the way the last published rate applies until the next one. Safe to share across threads.
+ */
+public final class ExchangeRateTable {
+
+    private static final ExchangeRateTable EMPTY = new ExchangeRateTable(Map.of());
+
+    private final Map<String, Series> series;
+
+    private ExchangeRateTable(Map<String, Series> series) {
+        this.series = series;
+    }
+
+    public static ExchangeRateTable empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Returns the rate in effect on {@code date}, or null if the table has no rate for the currency up to that date. */
+    public BigDecimal rate(String currency, LocalDate date) {
+        if (Price.DEFAULT_CURRENCY.equals(currency)) {
+            return BigDecimal.ONE;
+        }
+        Series rates = series.get(currency);
+        return rates != null ? rates.floor(date.toEpochDay()) : null;
+    }
+
+    public Set<String> currencies() {
+        return series.keySet();
+    }
+
+    private record Series(long[] epochDays, BigDecimal[] rates) {
+        BigDecimal floor(long epochDay) {
+            int index = Arrays.binarySearch(epochDays, epochDay);
+            if (index < 0) {
+                index = -index - 2;
+            }
+            return index >= 0 ? rates[index] : null;
+        }
+    }
+
+    public static class Builder {
+        private final Map<String, List<Map.Entry<LocalDate, BigDecimal>>> rates = new HashMap<>();
+
+        private Builder() {
+        }
+
+        /** Adds a rate; a later rate for the same currency and date replaces the earlier one. */
+        public Builder rate(String currency, LocalDate date, BigDecimal rate) {
+            if (rate.signum() <= 0) {
+                throw new IllegalArgumentException("Exchange rate must be positive: " + currency + " " + date + " " + rate);
+            }
+            rates.computeIfAbsent(currency, c -> new ArrayList<>()).add(Map.entry(date, rate));
+            return this;
+        }
+
+        public ExchangeRateTable build() {
+            Map<String, Series> series = new HashMap<>();
+            rates.forEach((currency, entries) -> {
+                List<Map.Entry<LocalDate, BigDecimal>> sorted = new ArrayList<>(entries);
+                sorted.sort(Map.Entry.comparingByKey());
+                long[] days = new long[sorted.size()];
+                BigDecimal[] values = new BigDecimal[sorted.size()];
+                int size = 0;
+                for (Map.Entry<LocalDate, BigDecimal> entry : sorted) {
+                    long day = entry.getKey().toEpochDay();
+                    if (size > 0 && days[size - 1] == day) {
+                        size--;
+                    }
+                    days[size] = day;
+                    values[size] = entry.getValue();
+                    size++;
+                }
+                series.put(currency, new Series(Arrays.copyOf(days, size), Arrays.copyOf(values, size)));
+            });
+            return new ExchangeRateTable(Map.copyOf(series));
+        }
+    }
+}
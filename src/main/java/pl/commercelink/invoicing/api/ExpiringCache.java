@@ -0,0 +1,66 @@
+package pl.commercelink.invoicing.api;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * Size-bounded LRU map with per-entry expiry. Null values are cached as well, so callers can tell
+ * "known to be absent" (an entry holding null) from "not cached" (no entry).
+ */
+final class ExpiringCache<K, V> {
+
+    record Entry<V>(V value, long expiresAt) {
+    }
+
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final LongSupplier ticker;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    ExpiringCache(int maximumSize, long ttlNanos, long negativeTtlNanos, LongSupplier ticker) {
+        this.ttlNanos = ttlNanos;
+        this.negativeTtlNanos = negativeTtlNanos;
+        this.ticker = ticker;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    synchronized Entry<V> get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.expiresAt - ticker.getAsLong() <= 0) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    synchronized void put(K key, V value) {
+        long ttl = value != null ? ttlNanos : negativeTtlNanos;
+        if (ttl > 0) {
+            entries.put(key, new Entry<>(value, ticker.getAsLong() + ttl));
+        }
+    }
+
+    synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /** Removes every entry holding {@code value}. */
+    synchronized void invalidateValue(V value) {
+        entries.values().removeIf(entry -> Objects.equals(entry.value(), value));
+    }
+
+    synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+}
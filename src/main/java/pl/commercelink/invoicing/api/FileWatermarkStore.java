@@ -0,0 +1,64 @@
+package pl.commercelink.invoicing.api;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Keeps each watermark in its own file in a directory, named after the store and the direction, so several
+ * providers can share one directory. Saves go through a temporary file and an atomic move, so a crash leaves either
+ * the old or the new watermark, never a partial one.
+ */
+public class FileWatermarkStore implements WatermarkStore {
+
+    private final Path directory;
+    private final String name;
+
+    /** {@code name} identifies the feed, usually the provider name, and becomes part of the file names. */
+    public FileWatermarkStore(Path directory, String name) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Watermark store name is required");
+        }
+        this.name = name;
+        try {
+            this.directory = Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create watermark directory " + directory, e);
+        }
+    }
+
+    @Override
+    public String load(InvoiceDirection direction) {
+        try {
+            return Files.readString(file(direction), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void save(InvoiceDirection direction, String watermark) {
+        Path file = file(direction);
+        try {
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                Files.writeString(temp, watermark, StandardCharsets.UTF_8);
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path file(InvoiceDirection direction) {
+        return directory.resolve(name + "." + direction.name() + ".watermark");
+    }
+}
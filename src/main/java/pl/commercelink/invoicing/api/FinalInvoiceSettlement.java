@@ -0,0 +1,114 @@
+package pl.commercelink.invoicing.api;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Prepares final sales invoices for a batch of orders; only {@link InvoiceDirection#Sale} invoices are looked up,
+ * since final invoices are issued to customers. The prior invoices of all orders are fetched at once through
+ * {@link InvoicingProvider#fetchInvoicesByOrderIds}, the advance invoices among them are summed in exact decimal
+ * arithmetic, and each order gets a ready-to-submit {@link InvoiceRequest#finalInvoice()} request.
+ * {@link Invoice} does not carry its kind, so the caller tells advance and final invoices apart with predicates,
+ * e.g. by their number series. An order that already has a final invoice, whose invoices cannot be looked up, or whose
+ * advances cannot be summed, because one has no amount or is in another currency, gets a failed {@link Settlement}
+ * and the other orders are settled as usual. If the bulk lookup fails, the orders are looked up one by one, so only
+ * the orders whose own lookup fails are affected.
+ */
+public class FinalInvoiceSettlement {
+
+    private final InvoicingProvider provider;
+    private final Predicate<Invoice> isAdvance;
+    private final Predicate<Invoice> isFinal;
+
+    public FinalInvoiceSettlement(InvoicingProvider provider, Predicate<Invoice> isAdvance, Predicate<Invoice> isFinal) {
+        this.provider = provider;
+        this.isAdvance = isAdvance;
+        this.isFinal = isFinal;
+    }
+
+    /** Returns one settlement per distinct order id, in input order; a repeated order id is settled once. */
+    public List<Settlement> settle(Collection<SettlementOrder> orders) {
+        Map<String, SettlementOrder> distinct = new LinkedHashMap<>();
+        for (SettlementOrder order : orders) {
+            distinct.putIfAbsent(order.orderId(), order);
+        }
+        Map<String, List<Invoice>> invoices;
+        try {
+            invoices = provider.fetchInvoicesByOrderIds(distinct.keySet(), InvoiceDirection.Sale);
+        } catch (RuntimeException e) {
+            return ParallelCalls.map(distinct.values(), InvoicingProvider.DEFAULT_BATCH_CONCURRENCY, this::lookUpAndSettle);
+        }
+        List<Settlement> settlements = new ArrayList<>(distinct.size());
+        for (SettlementOrder order : distinct.values()) {
+            settlements.add(settleSafely(order, invoices.getOrDefault(order.orderId(), List.of())));
+        }
+        return settlements;
+    }
+
+    /** Settles the orders and returns the requests of those that could be settled, in input order. */
+    public List<InvoiceRequest> finalInvoiceRequests(Collection<SettlementOrder> orders) {
+        return settle(orders).stream().filter(Settlement::isSuccess).map(Settlement::request).toList();
+    }
+
+    private Settlement lookUpAndSettle(SettlementOrder order) {
+        List<Invoice> invoices;
+        try {
+            invoices = provider.fetchInvoicesByOrderId(order.orderId(), InvoiceDirection.Sale);
+        } catch (RuntimeException e) {
+            return Settlement.failure(order, e);
+        }
+        return settleSafely(order, invoices != null ? invoices : List.of());
+    }
+
+    private Settlement settleSafely(SettlementOrder order, List<Invoice> invoices) {
+        try {
+            return settle(order, invoices);
+        } catch (RuntimeException e) {
+            return Settlement.failure(order, e);
+        }
+    }
+
+    private Settlement settle(SettlementOrder order, List<Invoice> invoices) {
+        for (Invoice invoice : invoices) {
+            if (isFinal.test(invoice)) {
+                throw new IllegalStateException("Order " + order.orderId() + " already has final invoice " + invoice.number());
+            }
+        }
+        String currency = order.total().currency();
+        List<Invoice> advances = new ArrayList<>();
+        List<String> invoiceNumbers = new ArrayList<>();
+        BigDecimal advancesGross = BigDecimal.ZERO;
+        for (Invoice invoice : invoices) {
+            if (!isAdvance.test(invoice)) {
+                continue;
+            }
+            Price amount = invoice.amount();
+            if (amount == null) {
+                throw new IllegalStateException("Advance invoice " + invoice.number() + " of order " + order.orderId() + " has no amount");
+            }
+            if (!currency.equals(amount.currency())) {
+                throw new IllegalStateException("Advance invoice " + invoice.number() + " is in " + amount.currency()
+                        + " but order " + order.orderId() + " is in " + currency);
+            }
+            advances.add(invoice);
+            invoiceNumbers.add(invoice.number());
+            advancesGross = advancesGross.add(amount.grossDecimal());
+        }
+        BigDecimal leftToPay = order.total().grossDecimal().subtract(advancesGross);
+        InvoiceRequest request = InvoiceRequest.finalInvoice()
+                .orderId(order.orderId())
+                .wmsOrderNo(order.wmsOrderNo())
+                .billingParty(order.billingParty())
+                .leftToPay(leftToPay.doubleValue())
+                .invoiceNumbers(invoiceNumbers)
+                .splitPaymentsEnabled(order.splitPaymentsEnabled())
+                .send(order.send())
+                .build();
+        return Settlement.success(order, advances, advancesGross, leftToPay, request);
+    }
+}
@@ -0,0 +1,97 @@
+package pl.commercelink.invoicing.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Base class for decorators: forwards every call, including the batch defaults, to the wrapped provider.
+ * {@link #streamInvoices} is deliberately not forwarded, so the pages it fetches pass through the decorator.
+ */
+public abstract class ForwardingInvoicingProvider implements InvoicingProvider {
+
+    protected final InvoicingProvider delegate;
+
+    protected ForwardingInvoicingProvider(InvoicingProvider delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Invoice createInvoice(InvoiceRequest request) {
+        return delegate.createInvoice(request);
+    }
+
+    @Override
+    public List<InvoiceCreationResult> createInvoices(Collection<InvoiceRequest> requests) {
+        return delegate.createInvoices(requests);
+    }
+
+    @Override
+    public Invoice fetchInvoiceById(String invoiceId, InvoiceDirection direction) {
+        return delegate.fetchInvoiceById(invoiceId, direction);
+    }
+
+    @Override
+    public List<Invoice> fetchInvoicesByOrderId(String orderId, InvoiceDirection direction) {
+        return delegate.fetchInvoicesByOrderId(orderId, direction);
+    }
+
+    @Override
+    public Map<String, Invoice> fetchInvoicesByIds(Collection<String> invoiceIds, InvoiceDirection direction) {
+        return delegate.fetchInvoicesByIds(invoiceIds, direction);
+    }
+
+    @Override
+    public Map<String, List<Invoice>> fetchInvoicesByOrderIds(Collection<String> orderIds, InvoiceDirection direction) {
+        return delegate.fetchInvoicesByOrderIds(orderIds, direction);
+    }
+
+    @Override
+    public InvoicePage fetchInvoicePage(InvoiceQuery query, String pageToken) {
+        return delegate.fetchInvoicePage(query, pageToken);
+    }
+
+    @Override
+    public InvoiceChanges fetchInvoiceChanges(InvoiceDirection direction, String watermark, int limit) {
+        return delegate.fetchInvoiceChanges(direction, watermark, limit);
+    }
+
+    @Override
+    public byte[] fetchInvoicePdf(String invoiceId) {
+        return delegate.fetchInvoicePdf(invoiceId);
+    }
+
+    @Override
+    public long writeInvoicePdf(String invoiceId, OutputStream out) throws IOException {
+        return delegate.writeInvoicePdf(invoiceId, out);
+    }
+
+    @Override
+    public long transferInvoicePdf(String invoiceId, WritableByteChannel target) throws IOException {
+        return delegate.transferInvoicePdf(invoiceId, target);
+    }
+
+    @Override
+    public InputStream openInvoicePdf(String invoiceId) throws IOException {
+        return delegate.openInvoicePdf(invoiceId);
+    }
+
+    @Override
+    public BillingParty fetchCostCenterById(String costCenterId) {
+        return delegate.fetchCostCenterById(costCenterId);
+    }
+
+    @Override
+    public BillingParty fetchBillingPartyById(String billingPartyId) {
+        return delegate.fetchBillingPartyById(billingPartyId);
+    }
+
+    @Override
+    public BillingParty fetchBillingPartyByShortcut(String billingPartyShortcut) {
+        return delegate.fetchBillingPartyByShortcut(billingPartyShortcut);
+    }
+}
@@ -0,0 +1,494 @@
+package pl.commercelink.invoicing.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Composite over several providers that serve the same invoices, e.g. replicas or alternative endpoints of one backend.
+ * <ul>
+ *     <li>Idempotent lookups ({@code fetchInvoiceById}, {@code fetchInvoicePdf}, cost center and billing party lookups)
+ *     are hedged: if the first provider has not answered within the observed latency percentile of that operation,
+ *     the same call is sent to the next provider and the first success wins; the calls still running are interrupted,
+ *     and their elapsed time counts towards the latency percentile. Hedges are paid from a budget that grows
+ *     by {@code hedgeBudget} per call, so they never add more than that share of extra load.</li>
+ *     <li>Other reads fail over: on an exception the next provider is tried.</li>
+ *     <li>Creates and streaming PDF writes go to one provider only, since repeating them is not safe.</li>
+ *     <li>Page tokens and change-feed watermarks belong to one backend, so those calls always go to the first provider.</li>
+ * </ul>
+ * Providers are tried healthiest first: by health score, ties in the order they were added. Health is a moving average
+ * of call outcomes; a provider that fell below {@link #UNHEALTHY_SCORE} is moved behind all others until
+ * {@code probeInterval} has passed since its last failure. An {@link Error} thrown by a provider is not failed over but
+ * rethrown to the caller.
+ */
+public class HedgingInvoicingProvider implements InvoicingProvider {
+
+    static final double UNHEALTHY_SCORE = 0.5;
+    private static final double HEALTH_WEIGHT = 0.2;
+    private static final long BUDGET_UNIT = 1_000_000;
+    private static final long MAX_BUDGET = 10 * BUDGET_UNIT;
+    private static final int MIN_SAMPLES = 100;
+    private static final int THRESHOLD_REFRESH = 64;
+    private static final ThreadFactory THREADS = Thread.ofVirtual().name("invoicing-hedge-", 0).factory();
+
+    private final List<Backend> backends;
+    private final long budgetPerCall;
+    private final long probeIntervalNanos;
+    private final AtomicLong budget = new AtomicLong();
+    private final LongAdder hedges = new LongAdder();
+    private final Map<InvoicingOperation, Latency> latencies = new EnumMap<>(InvoicingOperation.class);
+
+    private HedgingInvoicingProvider(Builder builder) {
+        if (builder.providers.isEmpty()) {
+            throw new IllegalArgumentException("At least one provider is required");
+        }
+        List<Backend> backends = new ArrayList<>();
+        builder.providers.forEach((name, provider) -> backends.add(new Backend(backends.size(), name, provider)));
+        this.backends = List.copyOf(backends);
+        this.budgetPerCall = Math.round(builder.hedgeBudget * BUDGET_UNIT);
+        this.probeIntervalNanos = builder.probeInterval.toNanos();
+        for (InvoicingOperation operation : InvoicingOperation.values()) {
+            latencies.put(operation, new Latency(builder.hedgePercentile, builder.minHedgeDelay.toNanos()));
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Invoice createInvoice(InvoiceRequest request) {
+        return single(healthiest(), backend -> backend.provider.createInvoice(request));
+    }
+
+    @Override
+    public List<InvoiceCreationResult> createInvoices(Collection<InvoiceRequest> requests) {
+        return single(healthiest(), backend -> backend.provider.createInvoices(requests));
+    }
+
+    @Override
+    public Invoice fetchInvoiceById(String invoiceId, InvoiceDirection direction) {
+        return hedged(InvoicingOperation.FetchInvoiceById, backend -> backend.provider.fetchInvoiceById(invoiceId, direction));
+    }
+
+    @Override
+    public List<Invoice> fetchInvoicesByOrderId(String orderId, InvoiceDirection direction) {
+        return failover(backend -> backend.provider.fetchInvoicesByOrderId(orderId, direction));
+    }
+
+    @Override
+    public Map<String, Invoice> fetchInvoicesByIds(Collection<String> invoiceIds, InvoiceDirection direction) {
+        return failover(backend -> backend.provider.fetchInvoicesByIds(invoiceIds, direction));
+    }
+
+    @Override
+    public Map<String, List<Invoice>> fetchInvoicesByOrderIds(Collection<String> orderIds, InvoiceDirection direction) {
+        return failover(backend -> backend.provider.fetchInvoicesByOrderIds(orderIds, direction));
+    }
+
+    @Override
+    public InvoicePage fetchInvoicePage(InvoiceQuery query, String pageToken) {
+        return single(backends.get(0), backend -> backend.provider.fetchInvoicePage(query, pageToken));
+    }
+
+    @Override
+    public InvoiceChanges fetchInvoiceChanges(InvoiceDirection direction, String watermark, int limit) {
+        return single(backends.get(0), backend -> backend.provider.fetchInvoiceChanges(direction, watermark, limit));
+    }
+
+    @Override
+    public byte[] fetchInvoicePdf(String invoiceId) {
+        return hedged(InvoicingOperation.FetchInvoicePdf, backend -> backend.provider.fetchInvoicePdf(invoiceId));
+    }
+
+    @Override
+    public long writeInvoicePdf(String invoiceId, OutputStream out) throws IOException {
+        return singleIo(healthiest(), backend -> backend.provider.writeInvoicePdf(invoiceId, out));
+    }
+
+    @Override
+    public long transferInvoicePdf(String invoiceId, WritableByteChannel target) throws IOException {
+        return singleIo(healthiest(), backend -> backend.provider.transferInvoicePdf(invoiceId, target));
+    }
+
+    @Override
+    public InputStream openInvoicePdf(String invoiceId) throws IOException {
+        try {
+            return failover(backend -> {
+                try {
+                    return backend.provider.openInvoicePdf(invoiceId);
+                } catch (IOException e) {
+                    throw new WrappedIOException(e);
+                }
+            });
+        } catch (WrappedIOException e) {
+            IOException failure = e.getCause();
+            for (Throwable suppressed : e.getSuppressed()) {
+                failure.addSuppressed(suppressed instanceof WrappedIOException wrapped ? wrapped.getCause() : suppressed);
+            }
+            throw failure;
+        }
+    }
+
+    @Override
+    public BillingParty fetchCostCenterById(String costCenterId) {
+        return hedged(InvoicingOperation.FetchCostCenterById, backend -> backend.provider.fetchCostCenterById(costCenterId));
+    }
+
+    @Override
+    public BillingParty fetchBillingPartyById(String billingPartyId) {
+        return hedged(InvoicingOperation.FetchBillingPartyById, backend -> backend.provider.fetchBillingPartyById(billingPartyId));
+    }
+
+    @Override
+    public BillingParty fetchBillingPartyByShortcut(String billingPartyShortcut) {
+        return hedged(InvoicingOperation.FetchBillingPartyByShortcut, backend -> backend.provider.fetchBillingPartyByShortcut(billingPartyShortcut));
+    }
+
+    /** Health score of every provider, between 0 and 1, in registration order. */
+    public Map<String, Double> health() {
+        Map<String, Double> health = new LinkedHashMap<>();
+        for (Backend backend : backends) {
+            health.put(backend.name, backend.score);
+        }
+        return health;
+    }
+
+    /** Number of hedged requests sent so far. */
+    public long hedgeCount() {
+        return hedges.sum();
+    }
+
+    /** Current delay before a call of the operation is hedged. */
+    public Duration hedgeDelay(InvoicingOperation operation) {
+        return Duration.ofNanos(latencies.get(operation).delayNanos);
+    }
+
+    private <T> T hedged(InvoicingOperation operation, Call<T> call) {
+        depositBudget();
+        List<Backend> candidates = byHealth();
+        Latency latency = latencies.get(operation);
+        BlockingQueue<Outcome<T>> outcomes = new LinkedBlockingQueue<>();
+        List<Attempt> attempts = new ArrayList<>(candidates.size());
+        RuntimeException failure = null;
+        int launched = 0;
+        int pending = 0;
+        boolean hedge = candidates.size() > 1;
+
+        attempts.add(launch(candidates.get(launched++), call, latency, outcomes));
+        pending++;
+        try {
+            while (true) {
+                Outcome<T> outcome;
+                try {
+                    outcome = hedge && launched < candidates.size()
+                            ? outcomes.poll(latency.delayNanos, TimeUnit.NANOSECONDS)
+                            : outcomes.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for " + operation, e);
+                }
+                if (outcome == null) {
+                    if (tryWithdrawBudget()) {
+                        hedges.increment();
+                        attempts.add(launch(candidates.get(launched++), call, latency, outcomes));
+                        pending++;
+                    } else {
+                        hedge = false;
+                    }
+                    continue;
+                }
+                pending--;
+                if (outcome.failure == null) {
+                    return outcome.value;
+                }
+                if (outcome.failure instanceof Error error) {
+                    throw error;
+                }
+                if (failure == null) {
+                    failure = (RuntimeException) outcome.failure;
+                } else {
+                    failure.addSuppressed(outcome.failure);
+                }
+                if (pending == 0) {
+                    if (launched == candidates.size()) {
+                        throw failure;
+                    }
+                    attempts.add(launch(candidates.get(launched++), call, latency, outcomes));
+                    pending++;
+                }
+            }
+        } finally {
+            for (Attempt attempt : attempts) {
+                attempt.cancel(latency);
+            }
+        }
+    }
+
+    /**
+     * Starts the call on its own thread. A successful call records its latency; a call that is still running when
+     * {@link #hedged} returns is cancelled by {@link Attempt#cancel} instead, and its outcome is dropped.
+     */
+    private <T> Attempt launch(Backend backend, Call<T> call, Latency latency, BlockingQueue<Outcome<T>> outcomes) {
+        Attempt attempt = new Attempt(System.nanoTime());
+        attempt.thread = THREADS.newThread(() -> {
+            T value;
+            try {
+                value = call.apply(backend);
+            } catch (Throwable e) {
+                // Call declares no checked exceptions, so this is a RuntimeException or an Error; either must reach the caller
+                if (attempt.finish()) {
+                    backend.record(false);
+                    outcomes.add(new Outcome<>(null, e));
+                }
+                return;
+            }
+            if (attempt.finish()) {
+                latency.record(System.nanoTime() - attempt.start);
+                backend.record(true);
+                outcomes.add(new Outcome<>(value, null));
+            }
+        });
+        attempt.thread.start();
+        return attempt;
+    }
+
+    private <T> T failover(Call<T> call) {
+        RuntimeException failure = null;
+        for (Backend backend : byHealth()) {
+            try {
+                return single(backend, call);
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        throw failure;
+    }
+
+    private <T> T single(Backend backend, Call<T> call) {
+        try {
+            T value = call.apply(backend);
+            backend.record(true);
+            return value;
+        } catch (RuntimeException e) {
+            backend.record(false);
+            throw e;
+        }
+    }
+
+    private long singleIo(Backend backend, IoCall call) throws IOException {
+        try {
+            long value = call.apply(backend);
+            backend.record(true);
+            return value;
+        } catch (IOException | RuntimeException e) {
+            backend.record(false);
+            throw e;
+        }
+    }
+
+    private Backend healthiest() {
+        return byHealth().get(0);
+    }
+
+    private List<Backend> byHealth() {
+        if (backends.size() == 1) {
+            return backends;
+        }
+        long now = System.nanoTime();
+        // scores change concurrently, so sort by a snapshot to keep the comparator consistent
+        boolean[] healthy = new boolean[backends.size()];
+        double[] scores = new double[backends.size()];
+        for (Backend backend : backends) {
+            healthy[backend.index] = backend.isHealthy(now, probeIntervalNanos);
+            scores[backend.index] = backend.score;
+        }
+        List<Backend> ordered = new ArrayList<>(backends);
+        ordered.sort(Comparator.comparing((Backend backend) -> !healthy[backend.index])
+                .thenComparing(Comparator.comparingDouble((Backend backend) -> scores[backend.index]).reversed())
+                .thenComparingInt(backend -> backend.index));
+        return ordered;
+    }
+
+    private void depositBudget() {
+        long current;
+        do {
+            current = budget.get();
+            if (current >= MAX_BUDGET) {
+                return;
+            }
+        } while (!budget.compareAndSet(current, Math.min(MAX_BUDGET, current + budgetPerCall)));
+    }
+
+    private boolean tryWithdrawBudget() {
+        long current;
+        do {
+            current = budget.get();
+            if (current < BUDGET_UNIT) {
+                return false;
+            }
+        } while (!budget.compareAndSet(current, current - BUDGET_UNIT));
+        return true;
+    }
+
+    @FunctionalInterface
+    private interface Call<T> {
+        T apply(Backend backend);
+    }
+
+    @FunctionalInterface
+    private interface IoCall {
+        long apply(Backend backend) throws IOException;
+    }
+
+    private record Outcome<T>(T value, Throwable failure) {
+    }
+
+    /** One launched call; exactly one of the worker finishing and the caller cancelling wins {@link #finish}. */
+    private static final class Attempt {
+        final long start;
+        final AtomicBoolean finished = new AtomicBoolean();
+        volatile Thread thread;
+
+        Attempt(long start) {
+            this.start = start;
+        }
+
+        boolean finish() {
+            return finished.compareAndSet(false, true);
+        }
+
+        /**
+         * Interrupts a call that is still running. Its elapsed time is recorded as its latency, a lower bound, so
+         * that slow losers keep pulling the hedge delay up rather than only the fast winners being sampled.
+         */
+        void cancel(Latency latency) {
+            if (finish()) {
+                latency.record(System.nanoTime() - start);
+                thread.interrupt();
+            }
+        }
+    }
+
+    private static final class WrappedIOException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        WrappedIOException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    private static final class Backend {
+        final int index;
+        final String name;
+        final InvoicingProvider provider;
+        volatile double score = 1.0;
+        volatile long lastFailureNanos;
+
+        Backend(int index, String name, InvoicingProvider provider) {
+            this.index = index;
+            this.name = name;
+            this.provider = provider;
+        }
+
+        synchronized void record(boolean success) {
+            score += HEALTH_WEIGHT * ((success ? 1.0 : 0.0) - score);
+            if (!success) {
+                lastFailureNanos = System.nanoTime();
+            }
+        }
+
+        boolean isHealthy(long now, long probeIntervalNanos) {
+            return score >= UNHEALTHY_SCORE || now - lastFailureNanos >= probeIntervalNanos;
+        }
+    }
+
+    private static final class Latency {
+        final Histogram histogram = new Histogram();
+        final AtomicLong samples = new AtomicLong();
+        final double percentile;
+        final long minDelayNanos;
+        volatile long delayNanos;
+
+        Latency(double percentile, long minDelayNanos) {
+            this.percentile = percentile;
+            this.minDelayNanos = minDelayNanos;
+            this.delayNanos = minDelayNanos;
+        }
+
+        /** Records a successful call; the percentile is recomputed every few calls rather than on each one. */
+        void record(long nanos) {
+            histogram.record(nanos);
+            long count = samples.incrementAndGet();
+            if (count >= MIN_SAMPLES && count % THRESHOLD_REFRESH == 0) {
+                delayNanos = Math.max(minDelayNanos, histogram.snapshot().percentile(percentile));
+            }
+        }
+    }
+
+    public static class Builder {
+        private final Map<String, InvoicingProvider> providers = new LinkedHashMap<>();
+        private double hedgePercentile = 95;
+        private Duration minHedgeDelay = Duration.ofMillis(50);
+        private double hedgeBudget = 0.05;
+        private Duration probeInterval = Duration.ofSeconds(30);
+
+        private Builder() {
+        }
+
+        /** Adds a provider; providers are preferred in the order they are added. */
+        public Builder provider(String name, InvoicingProvider provider) { this.providers.put(name, provider); return this; }
+        /** Adds the named providers of a registry, in the given order. */
+        public Builder providers(InvoicingProviderRegistry registry, List<String> names) {
+            for (String name : names) {
+                InvoicingProvider provider = registry.provider(name);
+                if (provider == null) {
+                    throw new IllegalArgumentException("Unknown invoicing provider: " + name);
+                }
+                provider(name, provider);
+            }
+            return this;
+        }
+        public Builder hedgePercentile(double hedgePercentile) { this.hedgePercentile = hedgePercentile; return this; }
+        /** Hedge delay until enough latencies have been observed, and the lower bound afterwards. */
+        public Builder minHedgeDelay(Duration minHedgeDelay) { this.minHedgeDelay = minHedgeDelay; return this; }
+        /** Maximum share of hedged calls, e.g. 0.05 for at most 5% extra requests. */
+        public Builder hedgeBudget(double hedgeBudget) { this.hedgeBudget = hedgeBudget; return this; }
+        public Builder probeInterval(Duration probeInterval) { this.probeInterval = probeInterval; return this; }
+
+        public HedgingInvoicingProvider build() {
+            if (hedgePercentile <= 0 || hedgePercentile > 100) {
+                throw new IllegalArgumentException("hedgePercentile must be in (0, 100]: " + hedgePercentile);
+            }
+            if (hedgeBudget < 0 || hedgeBudget > 1) {
+                throw new IllegalArgumentException("hedgeBudget must be in [0, 1]: " + hedgeBudget);
+            }
+            return new HedgingInvoicingProvider(this);
+        }
+    }
+}
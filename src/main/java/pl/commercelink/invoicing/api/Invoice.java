@@ -1,7 +1,7 @@
 package pl.commercelink.invoicing.api;
 
 import java.time.LocalDate;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
 
 public record Invoice(
@@ -19,15 +19,71 @@ public record Invoice(
         BillingParty buyer
 ) {
     public Invoice {
-        positions = positions != null ? List.copyOf(positions) : List.of();
+        if (!(positions instanceof InvoicePositionColumns)) {
+            positions = positions != null ? List.copyOf(positions) : List.of();
+        }
     }
 
+    /** Case-insensitive match against the comma-separated order ids, without splitting or allocating. */
     public boolean hasOrderId(String other) {
         if (orderId == null || orderId.isBlank() || other == null || other.isBlank()) {
             return false;
         }
-        return Arrays.stream(orderId.split(","))
-                .map(String::trim)
-                .anyMatch(id -> id.equalsIgnoreCase(other));
+        int length = orderId.length();
+        int start = 0;
+        while (start <= length) {
+            int end = orderId.indexOf(',', start);
+            if (end < 0) {
+                end = length;
+            }
+            int from = trimStart(orderId, start, end);
+            int to = trimEnd(orderId, from, end);
+            if (to - from == other.length() && orderId.regionMatches(true, from, other, 0, other.length())) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    /** Returns the trimmed, non-empty order ids this invoice refers to. */
+    public List<String> orderIds() {
+        return parseOrderIds(orderId);
+    }
+
+    static List<String> parseOrderIds(String orderId) {
+        if (orderId == null || orderId.isBlank()) {
+            return List.of();
+        }
+        List<String> ids = new ArrayList<>(1);
+        int length = orderId.length();
+        int start = 0;
+        while (start <= length) {
+            int end = orderId.indexOf(',', start);
+            if (end < 0) {
+                end = length;
+            }
+            int from = trimStart(orderId, start, end);
+            int to = trimEnd(orderId, from, end);
+            if (to > from) {
+                ids.add(orderId.substring(from, to));
+            }
+            start = end + 1;
+        }
+        return ids;
+    }
+
+    private static int trimStart(String value, int from, int to) {
+        while (from < to && value.charAt(from) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(String value, int from, int to) {
+        while (to > from && value.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        return to;
     }
-}
\ No newline at end of file
+}
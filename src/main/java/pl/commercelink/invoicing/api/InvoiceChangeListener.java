@@ -0,0 +1,11 @@
+package pl.commercelink.invoicing.api;
+
+import java.util.List;
+
+/** Receives the invoices delivered by an {@link InvoiceChangePoller}. */
+@FunctionalInterface
+public interface InvoiceChangeListener {
+
+    /** Called with each batch of changed invoices; throwing stops the poll before the watermark is saved. */
+    void onChanges(InvoiceDirection direction, List<Invoice> invoices);
+}
@@ -0,0 +1,77 @@
+package pl.commercelink.invoicing.api;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Follows a provider's change feed for one direction and hands every batch of changed invoices to the listeners.
+ * The watermark is saved only after all listeners have accepted a batch, so delivery is at least once: after a crash
+ * or a listener failure the same batch is delivered again, and listeners should be idempotent. A feed that reports
+ * more changes without advancing the watermark fails the poll instead of being fetched forever. The failure of a
+ * scheduled poll is available from {@link #lastFailure()}.
+ */
+public final class InvoiceChangePoller implements AutoCloseable {
+
+    private final InvoicingProvider provider;
+    private final InvoiceDirection direction;
+    private final WatermarkStore watermarks;
+    private final int batchSize;
+    private final List<InvoiceChangeListener> listeners = new CopyOnWriteArrayList<>();
+    // a failed poll does not advance the watermark past the failed batch, so the next poll retries it
+    private final PeriodicTask task = new PeriodicTask("invoice-change-poller", this::poll);
+
+    public InvoiceChangePoller(InvoicingProvider provider, InvoiceDirection direction, WatermarkStore watermarks, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.provider = provider;
+        this.direction = direction;
+        this.watermarks = watermarks;
+        this.batchSize = batchSize;
+    }
+
+    public InvoiceChangePoller addListener(InvoiceChangeListener listener) {
+        listeners.add(listener);
+        return this;
+    }
+
+    /** Polls every {@code interval} until closed. */
+    public void start(Duration interval) {
+        task.start(interval);
+    }
+
+    /** Delivers changes until the feed is caught up and returns how many invoices were delivered. */
+    public synchronized int poll() {
+        int delivered = 0;
+        String watermark = watermarks.load(direction);
+        InvoiceChanges changes;
+        do {
+            changes = provider.fetchInvoiceChanges(direction, watermark, batchSize);
+            if (!changes.invoices().isEmpty()) {
+                for (InvoiceChangeListener listener : listeners) {
+                    listener.onChanges(direction, changes.invoices());
+                }
+                delivered += changes.invoices().size();
+            }
+            boolean advanced = changes.watermark() != null && !changes.watermark().equals(watermark);
+            if (advanced) {
+                watermark = changes.watermark();
+                watermarks.save(direction, watermark);
+            } else if (changes.hasMore()) {
+                throw new IllegalStateException("Change feed for " + direction + " reports more changes but did not advance watermark " + watermark);
+            }
+        } while (changes.hasMore());
+        return delivered;
+    }
+
+    /** Returns what ended the last scheduled poll, or null if it completed. */
+    public Throwable lastFailure() {
+        return task.lastFailure();
+    }
+
+    @Override
+    public void close() {
+        task.close();
+    }
+}
@@ -0,0 +1,14 @@
+package pl.commercelink.invoicing.api;
+
+import java.util.List;
+
+/**
+ * Invoices created or modified after a watermark, oldest change first. {@code watermark} is opaque to callers and is
+ * passed back to {@link InvoicingProvider#fetchInvoiceChanges} to continue; {@code hasMore} is true when the provider
+ * stopped at the limit and more changes are already available.
+ */
+public record InvoiceChanges(List<Invoice> invoices, String watermark, boolean hasMore) {
+    public InvoiceChanges {
+        invoices = invoices != null ? List.copyOf(invoices) : List.of();
+    }
+}
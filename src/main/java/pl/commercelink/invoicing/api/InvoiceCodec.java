@@ -0,0 +1,528 @@
+package pl.commercelink.invoicing.api;
+
+import java.math.BigDecimal;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Compact, versioned binary format for {@link Invoice} and {@link InvoiceRequest}. Amounts are written as zig-zag
+ * varints of minor units and VAT rates as fixed-point decimals. Each message carries its own string dictionary, so
+ * a string repeated within it (currency, country, city, party names) is written once and then referenced by index;
+ * a buyer equal to the seller is written as a back reference. Encoding writes straight into the caller's
+ * {@link ByteBuffer} and throws {@link BufferOverflowException} if it does not fit; decoding reads from the
+ * buffer's position and leaves it just past the message. Truncated or corrupt input is rejected with
+ * {@link IllegalArgumentException}; element counts are checked against the remaining bytes before anything is
+ * allocated for them.
+ */
+public final class InvoiceCodec {
+
+    static final byte VERSION = 1;
+
+    private static final byte TYPE_INVOICE = 1;
+    private static final byte TYPE_REQUEST = 2;
+    private static final byte TYPE_INVOICE_LIST = 3;
+
+    private static final int STRING_NULL = 0;
+    private static final int STRING_LITERAL = 1;
+    private static final int STRING_REFERENCE_BASE = 2;
+
+    private static final int PARTY_NULL = 0;
+    private static final int PARTY_INLINE = 1;
+    private static final int PARTY_SAME_AS_SELLER = 2;
+
+    private static final int MAX_STRING_LENGTH = 1 << 24;
+
+    private static final InvoiceKind[] KINDS = InvoiceKind.values();
+
+    private InvoiceCodec() {
+    }
+
+    public static void encode(Invoice invoice, ByteBuffer out) {
+        Writer writer = new Writer(out);
+        writer.header(TYPE_INVOICE);
+        writer.invoice(invoice);
+    }
+
+    public static void encode(InvoiceRequest request, ByteBuffer out) {
+        Writer writer = new Writer(out);
+        writer.header(TYPE_REQUEST);
+        writer.request(request);
+    }
+
+    /** Encodes the invoices as one message sharing a single string dictionary. */
+    public static void encode(List<Invoice> invoices, ByteBuffer out) {
+        Writer writer = new Writer(out);
+        writer.header(TYPE_INVOICE_LIST);
+        writer.varint(invoices.size());
+        for (Invoice invoice : invoices) {
+            writer.invoice(invoice);
+        }
+    }
+
+    public static Invoice decodeInvoice(ByteBuffer in) {
+        return decode(in, TYPE_INVOICE, Reader::invoice);
+    }
+
+    public static InvoiceRequest decodeRequest(ByteBuffer in) {
+        return decode(in, TYPE_REQUEST, Reader::request);
+    }
+
+    public static List<Invoice> decodeInvoices(ByteBuffer in) {
+        return decode(in, TYPE_INVOICE_LIST, reader -> {
+            int count = reader.count();
+            List<Invoice> invoices = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                invoices.add(reader.invoice());
+            }
+            return invoices;
+        });
+    }
+
+    private static <T> T decode(ByteBuffer in, byte type, Function<Reader, T> body) {
+        Reader reader = new Reader(in);
+        try {
+            reader.header(type);
+            return body.apply(reader);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated message", e);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Corrupt date", e);
+        }
+    }
+
+    public static byte[] toBytes(Invoice invoice) {
+        return toBytes(out -> encode(invoice, out));
+    }
+
+    public static byte[] toBytes(InvoiceRequest request) {
+        return toBytes(out -> encode(request, out));
+    }
+
+    public static byte[] toBytes(List<Invoice> invoices) {
+        return toBytes(out -> encode(invoices, out));
+    }
+
+    private static byte[] toBytes(Consumer<ByteBuffer> encoder) {
+        int capacity = 512;
+        while (true) {
+            ByteBuffer buffer = ByteBuffer.allocate(capacity);
+            try {
+                encoder.accept(buffer);
+                byte[] bytes = new byte[buffer.position()];
+                buffer.flip().get(bytes);
+                return bytes;
+            } catch (BufferOverflowException e) {
+                capacity *= 2;
+            }
+        }
+    }
+
+    private static final class Writer {
+        private final ByteBuffer out;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+
+        Writer(ByteBuffer out) {
+            this.out = out;
+        }
+
+        void header(byte type) {
+            out.put(VERSION);
+            out.put(type);
+        }
+
+        void invoice(Invoice invoice) {
+            string(invoice.id());
+            string(invoice.number());
+            string(invoice.orderId());
+            price(invoice.amount());
+            string(invoice.viewUrl());
+            string(invoice.currency());
+            fixed64(Double.doubleToRawLongBits(invoice.exchangeRate()));
+            out.put((byte) (invoice.paid() ? 1 : 0));
+            date(invoice.paymentToDate());
+            positions(invoice.positions());
+            party(invoice.seller());
+            if (invoice.buyer() != null && invoice.buyer().equals(invoice.seller())) {
+                varint(PARTY_SAME_AS_SELLER);
+            } else {
+                party(invoice.buyer());
+            }
+        }
+
+        void request(InvoiceRequest request) {
+            varint(request.invoiceKind() == null ? 0 : request.invoiceKind().ordinal() + 1);
+            string(request.orderId());
+            date(request.sellDate());
+            party(request.billingParty());
+            if (request.positions() == null) {
+                varint(0);
+            } else {
+                varint(request.positions().size() + 1);
+                for (InvoicePosition position : request.positions()) {
+                    position(position);
+                }
+            }
+            fixed64(Double.doubleToRawLongBits(request.paidAmount()));
+            string(request.description());
+            varlong(zigZag(request.paymentTerms()));
+            out.put((byte) ((request.splitPaymentsEnabled() ? 1 : 0) | (request.send() ? 2 : 0)));
+            string(request.wmsOrderNo());
+            fixed64(Double.doubleToRawLongBits(request.leftToPay()));
+            if (request.invoiceNumbers() == null) {
+                varint(0);
+            } else {
+                varint(request.invoiceNumbers().size() + 1);
+                for (String number : request.invoiceNumbers()) {
+                    string(number);
+                }
+            }
+        }
+
+        void positions(List<InvoicePosition> positions) {
+            varint(positions.size());
+            for (InvoicePosition position : positions) {
+                position(position);
+            }
+        }
+
+        void position(InvoicePosition position) {
+            string(position.id());
+            string(position.name());
+            varlong(zigZag(position.qty()));
+            price(position.price());
+        }
+
+        void price(Price price) {
+            if (price == null) {
+                out.put((byte) 0);
+                return;
+            }
+            out.put((byte) 1);
+            varlong(zigZag(price.netDecimal().movePointRight(2).longValueExact()));
+            varlong(zigZag(price.grossDecimal().movePointRight(2).longValueExact()));
+            vatRate(VatRateTable.rate(price.vatRateDecimal()));
+            string(price.currency());
+        }
+
+        void vatRate(VatRateTable.Rate rate) {
+            if (rate.isExact()) {
+                varint(rate.scale + 1);
+                varlong(rate.unscaled);
+            } else {
+                varint(0);
+                fixed64(Double.doubleToRawLongBits(rate.value));
+            }
+        }
+
+        void party(BillingParty party) {
+            if (party == null) {
+                varint(PARTY_NULL);
+                return;
+            }
+            varint(PARTY_INLINE);
+            string(party.id());
+            string(party.name());
+            string(party.surname());
+            string(party.company());
+            string(party.streetAndNumber());
+            string(party.postalCode());
+            string(party.city());
+            string(party.country());
+            string(party.taxNo());
+            string(party.shortcut());
+        }
+
+        void date(LocalDate date) {
+            varlong(date == null ? 0 : zigZag(date.toEpochDay()) + 1);
+        }
+
+        void string(String value) {
+            if (value == null) {
+                varint(STRING_NULL);
+                return;
+            }
+            Integer index = dictionary.get(value);
+            if (index != null) {
+                varint(STRING_REFERENCE_BASE + index);
+                return;
+            }
+            dictionary.put(value, dictionary.size());
+            varint(STRING_LITERAL);
+            varint(utf8Length(value));
+            utf8(value);
+        }
+
+        void utf8(String value) {
+            int length = value.length();
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    out.put((byte) c);
+                } else if (c < 0x800) {
+                    out.put((byte) (0xC0 | (c >> 6)));
+                    out.put((byte) (0x80 | (c & 0x3F)));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    out.put((byte) (0xF0 | (codePoint >> 18)));
+                    out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                    out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                    out.put((byte) (0x80 | (codePoint & 0x3F)));
+                } else if (Character.isSurrogate(c)) {
+                    out.put((byte) '?');
+                } else {
+                    out.put((byte) (0xE0 | (c >> 12)));
+                    out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                    out.put((byte) (0x80 | (c & 0x3F)));
+                }
+            }
+        }
+
+        void varint(int value) {
+            varlong(value & 0xFFFFFFFFL);
+        }
+
+        void varlong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.put((byte) value);
+        }
+
+        void fixed64(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.put((byte) (value >>> shift));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final ByteBuffer in;
+        private final List<String> dictionary = new ArrayList<>();
+        private byte[] scratch;
+
+        Reader(ByteBuffer in) {
+            this.in = in;
+        }
+
+        void header(byte expectedType) {
+            byte version = in.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported codec version " + version);
+            }
+            byte type = in.get();
+            if (type != expectedType) {
+                throw new IllegalArgumentException("Expected record type " + expectedType + " but found " + type);
+            }
+        }
+
+        Invoice invoice() {
+            String id = string();
+            String number = string();
+            String orderId = string();
+            Price amount = price();
+            String viewUrl = string();
+            String currency = string();
+            double exchangeRate = Double.longBitsToDouble(fixed64());
+            boolean paid = in.get() != 0;
+            LocalDate paymentToDate = date();
+            int positionCount = count();
+            List<InvoicePosition> positions = new ArrayList<>(positionCount);
+            for (int i = 0; i < positionCount; i++) {
+                positions.add(position());
+            }
+            BillingParty seller = party(null);
+            BillingParty buyer = party(seller);
+            return new Invoice(id, number, orderId, amount, viewUrl, currency, exchangeRate, paid, paymentToDate, positions, seller, buyer);
+        }
+
+        InvoiceRequest request() {
+            int kind = length();
+            if (kind > KINDS.length) {
+                throw new IllegalArgumentException("Corrupt invoice kind " + kind);
+            }
+            InvoiceKind invoiceKind = kind == 0 ? null : KINDS[kind - 1];
+            String orderId = string();
+            LocalDate sellDate = date();
+            BillingParty billingParty = party(null);
+            List<InvoicePosition> positions = null;
+            int positionCount = length();
+            if (positionCount > 0) {
+                positions = new ArrayList<>(elements(positionCount - 1));
+                for (int i = 1; i < positionCount; i++) {
+                    positions.add(position());
+                }
+            }
+            double paidAmount = Double.longBitsToDouble(fixed64());
+            String description = string();
+            int paymentTerms = (int) unZigZag(varlong());
+            byte flags = in.get();
+            String wmsOrderNo = string();
+            double leftToPay = Double.longBitsToDouble(fixed64());
+            List<String> invoiceNumbers = null;
+            int numberCount = length();
+            if (numberCount > 0) {
+                invoiceNumbers = new ArrayList<>(elements(numberCount - 1));
+                for (int i = 1; i < numberCount; i++) {
+                    invoiceNumbers.add(string());
+                }
+            }
+            return new InvoiceRequest(invoiceKind, orderId, sellDate, billingParty, positions, paidAmount, description,
+                    paymentTerms, (flags & 1) != 0, (flags & 2) != 0, wmsOrderNo, leftToPay, invoiceNumbers);
+        }
+
+        InvoicePosition position() {
+            String id = string();
+            String name = string();
+            int qty = (int) unZigZag(varlong());
+            return new InvoicePosition(id, name, qty, price());
+        }
+
+        Price price() {
+            if (in.get() == 0) {
+                return null;
+            }
+            long net = unZigZag(varlong());
+            long gross = unZigZag(varlong());
+            VatRateTable.Rate rate = vatRate();
+            String currency = string();
+            return new Price(BigDecimal.valueOf(net, 2), BigDecimal.valueOf(gross, 2), rate.decimal, currency);
+        }
+
+        VatRateTable.Rate vatRate() {
+            int tag = length();
+            if (tag == 0) {
+                return VatRateTable.rate(Double.longBitsToDouble(fixed64()));
+            }
+            return VatRateTable.rate(BigDecimal.valueOf(varlong(), tag - 1));
+        }
+
+        BillingParty party(BillingParty seller) {
+            int tag = length();
+            if (tag == PARTY_NULL) {
+                return null;
+            }
+            if (tag == PARTY_SAME_AS_SELLER) {
+                return seller;
+            }
+            if (tag != PARTY_INLINE) {
+                throw new IllegalArgumentException("Corrupt party tag " + tag);
+            }
+            return new BillingParty(string(), string(), string(), string(), string(),
+                    string(), string(), string(), string(), string());
+        }
+
+        LocalDate date() {
+            long value = varlong();
+            return value == 0 ? null : LocalDate.ofEpochDay(unZigZag(value - 1));
+        }
+
+        String string() {
+            int tag = length();
+            if (tag == STRING_NULL) {
+                return null;
+            }
+            if (tag >= STRING_REFERENCE_BASE) {
+                int index = tag - STRING_REFERENCE_BASE;
+                if (index >= dictionary.size()) {
+                    throw new IllegalArgumentException("Corrupt string reference " + index);
+                }
+                return dictionary.get(index);
+            }
+            int length = length();
+            if (length > MAX_STRING_LENGTH || length > in.remaining()) {
+                throw new IllegalArgumentException("Corrupt string length " + length);
+            }
+            String value;
+            if (in.hasArray()) {
+                value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+                in.position(in.position() + length);
+            } else {
+                if (scratch == null || scratch.length < length) {
+                    scratch = new byte[Math.max(64, Integer.highestOneBit(length) << 1)];
+                }
+                in.get(scratch, 0, length);
+                value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+            dictionary.add(value);
+            return value;
+        }
+
+        int length() {
+            long value = varlong();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Corrupt length " + value);
+            }
+            return (int) value;
+        }
+
+        /** Reads an element count; every element takes at least one byte, so it cannot exceed what is left. */
+        int count() {
+            return elements(length());
+        }
+
+        int elements(int count) {
+            if (count > in.remaining()) {
+                throw new IllegalArgumentException("Corrupt element count " + count + " with " + in.remaining() + " bytes left");
+            }
+            return count;
+        }
+
+        long varlong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = in.get();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        long fixed64() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (in.get() & 0xFF);
+            }
+            return value;
+        }
+    }
+
+    private static int utf8Length(String value) {
+        int length = value.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    bytes += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    bytes += 2;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,16 @@
+package pl.commercelink.invoicing.api;
+
+public record InvoiceCreationResult(InvoiceRequest request, Invoice invoice, RuntimeException failure) {
+
+    public static InvoiceCreationResult success(InvoiceRequest request, Invoice invoice) {
+        return new InvoiceCreationResult(request, invoice, null);
+    }
+
+    public static InvoiceCreationResult failure(InvoiceRequest request, RuntimeException failure) {
+        return new InvoiceCreationResult(request, null, failure);
+    }
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+}
@@ -0,0 +1,6 @@
+package pl.commercelink.invoicing.api;
+
+public enum InvoiceDateType {
+    SellDate,
+    IssueDate
+}
@@ -0,0 +1,286 @@
+package pl.commercelink.invoicing.api;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, memory-mapped journal of {@link InvoiceRequest}s waiting to be sent to an {@link InvoicingProvider}.
+ * {@link #submit} records a request under an idempotency key derived from its order id and {@link InvoiceKind} and
+ * returns at once; an {@link InvoiceJournalDrainer} later claims pending entries, creates the invoices and records
+ * the resulting invoice ids.
+ * <p>
+ * Every state change is a checksummed record, and the in-memory state is rebuilt from the file on open. A claimed
+ * entry is recorded as {@link Status#Attempted} before the provider is called, so an entry found in that state
+ * after a crash may or may not have been issued. Such entries are never resubmitted automatically; they are
+ * reported by {@link #uncertain()} and must be settled with {@link #markIssued} or {@link #resubmit}.
+ * The file is never compacted, so rotate it once all entries are settled.
+ */
+public final class InvoiceJournal implements AutoCloseable {
+
+    public enum Status {
+        Pending,
+        Attempted,
+        Issued,
+        Failed
+    }
+
+    /** Current state of one journaled request; {@code request} is dropped once the invoice is issued. */
+    public record Entry(String key, InvoiceRequest request, Status status, String invoiceId, String failure) {
+    }
+
+    private static final int DEFAULT_CAPACITY = 1 << 20;
+    private static final int HEADER_SIZE = 9;
+    private static final int MAX_FAILURE_LENGTH = 1_000;
+
+    private static final byte SUBMITTED = 1;
+    private static final byte ATTEMPTED = 2;
+    private static final byte ISSUED = 3;
+    private static final byte FAILED = 4;
+
+    private final FileChannel channel;
+    private final boolean force;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final CRC32C crc = new CRC32C();
+    private MappedByteBuffer buffer;
+
+    private InvoiceJournal(FileChannel channel, int initialCapacity, boolean force) throws IOException {
+        this.channel = channel;
+        this.force = force;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(initialCapacity, channel.size()));
+        replay();
+    }
+
+    /** Opens or creates a journal that forces every record to disk before returning. */
+    public static InvoiceJournal open(Path file) {
+        return open(file, true);
+    }
+
+    /**
+     * Opens or creates a journal. Without {@code force}, records survive a crash of the process but not of the
+     * operating system.
+     */
+    public static InvoiceJournal open(Path file, boolean force) {
+        return open(file, force, DEFAULT_CAPACITY);
+    }
+
+    static InvoiceJournal open(Path file, boolean force, int initialCapacity) {
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new InvoiceJournal(channel, initialCapacity, force);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open invoice journal " + file, e);
+        }
+    }
+
+    /** Returns {@code orderId/kind}; requests without an order id or kind cannot be journaled. */
+    public static String idempotencyKey(InvoiceRequest request) {
+        if (request.orderId() == null || request.invoiceKind() == null) {
+            throw new IllegalArgumentException("Journaled requests need an orderId and an invoiceKind: "
+                    + request.orderId() + "/" + request.invoiceKind());
+        }
+        return request.orderId() + "/" + request.invoiceKind();
+    }
+
+    /**
+     * Journals the request unless a request with the same idempotency key is already known, and returns the key.
+     * Returns once the request is durably recorded.
+     */
+    public synchronized String submit(InvoiceRequest request) {
+        String key = idempotencyKey(request);
+        if (!entries.containsKey(key)) {
+            append(SUBMITTED, key, InvoiceCodec.toBytes(request));
+            flush();
+            entries.put(key, new Entry(key, request, Status.Pending, null, null));
+        }
+        return key;
+    }
+
+    public synchronized Entry entry(String key) {
+        return entries.get(key);
+    }
+
+    public synchronized List<Entry> pending() {
+        return withStatus(Status.Pending);
+    }
+
+    /** Entries handed to the provider whose outcome was not recorded, including calls currently in flight. */
+    public synchronized List<Entry> uncertain() {
+        return withStatus(Status.Attempted);
+    }
+
+    public synchronized List<Entry> failed() {
+        return withStatus(Status.Failed);
+    }
+
+    /** Moves up to {@code max} pending entries to {@link Status#Attempted} and returns them for submission. */
+    synchronized List<Entry> claim(int max) {
+        List<Entry> claimed = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (claimed.size() == max) {
+                break;
+            }
+            if (entry.status() == Status.Pending) {
+                claimed.add(entry);
+            }
+        }
+        for (Entry entry : claimed) {
+            append(ATTEMPTED, entry.key(), null);
+            entries.put(entry.key(), new Entry(entry.key(), entry.request(), Status.Attempted, null, null));
+        }
+        flush();
+        return claimed;
+    }
+
+    public synchronized void markIssued(String key, String invoiceId) {
+        requireKnown(key);
+        append(ISSUED, key, utf8(invoiceId != null ? invoiceId : ""));
+        flush();
+        entries.put(key, new Entry(key, null, Status.Issued, invoiceId, null));
+    }
+
+    public synchronized void markFailed(String key, String failure) {
+        Entry entry = requireKnown(key);
+        String message = failure == null ? "" : failure.length() > MAX_FAILURE_LENGTH ? failure.substring(0, MAX_FAILURE_LENGTH) : failure;
+        append(FAILED, key, utf8(message));
+        flush();
+        entries.put(key, new Entry(key, entry.request(), Status.Failed, null, message));
+    }
+
+    /** Puts a failed or uncertain entry back in the queue; only call this once it is known not to have been issued. */
+    public synchronized void resubmit(String key) {
+        Entry entry = requireKnown(key);
+        if (entry.status() == Status.Issued) {
+            throw new IllegalStateException("Invoice for " + key + " was already issued as " + entry.invoiceId());
+        }
+        append(SUBMITTED, key, InvoiceCodec.toBytes(entry.request()));
+        flush();
+        entries.put(key, new Entry(key, entry.request(), Status.Pending, null, null));
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Entry requireKnown(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            throw new IllegalArgumentException("Unknown journal key " + key);
+        }
+        return entry;
+    }
+
+    private List<Entry> withStatus(Status status) {
+        return entries.values().stream().filter(entry -> entry.status() == status).toList();
+    }
+
+    private void append(byte type, String key, byte[] body) {
+        byte[] keyBytes = utf8(key);
+        int bodyLength = body != null ? body.length : 0;
+        int payloadLength = 4 + keyBytes.length + bodyLength;
+        ensureCapacity(HEADER_SIZE + payloadLength);
+
+        int start = buffer.position();
+        buffer.position(start + HEADER_SIZE);
+        buffer.putInt(keyBytes.length).put(keyBytes);
+        if (body != null) {
+            buffer.put(body);
+        }
+        crc.reset();
+        crc.update(type);
+        crc.update(buffer.slice(start + HEADER_SIZE, payloadLength));
+        buffer.put(start + 4, type);
+        buffer.putInt(start + 5, (int) crc.getValue());
+        buffer.putInt(start, payloadLength);
+    }
+
+    private void flush() {
+        if (force) {
+            buffer.force();
+        }
+    }
+
+    private void ensureCapacity(int recordSize) {
+        if (buffer.remaining() >= recordSize + 4) {
+            return;
+        }
+        try {
+            int position = buffer.position();
+            long capacity = buffer.capacity();
+            while (capacity - position < recordSize + 4) {
+                capacity *= 2;
+            }
+            if (capacity > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Invoice journal is full; rotate it");
+            }
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            buffer.position(position);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void replay() {
+        while (buffer.remaining() >= HEADER_SIZE) {
+            int start = buffer.position();
+            int payloadLength = buffer.getInt(start);
+            if (payloadLength < 4 || payloadLength > buffer.remaining() - HEADER_SIZE) {
+                break;
+            }
+            byte type = buffer.get(start + 4);
+            ByteBuffer payload = buffer.slice(start + HEADER_SIZE, payloadLength);
+            crc.reset();
+            crc.update(type);
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(start + 5)) {
+                break;
+            }
+            apply(type, payload);
+            buffer.position(start + HEADER_SIZE + payloadLength);
+        }
+    }
+
+    private void apply(byte type, ByteBuffer payload) {
+        byte[] keyBytes = new byte[payload.getInt()];
+        payload.get(keyBytes);
+        String key = new String(keyBytes, StandardCharsets.UTF_8);
+        Entry previous = entries.get(key);
+        switch (type) {
+            case SUBMITTED -> entries.put(key, new Entry(key, InvoiceCodec.decodeRequest(payload), Status.Pending, null, null));
+            case ATTEMPTED -> entries.put(key, new Entry(key, previous.request(), Status.Attempted, null, null));
+            case ISSUED -> {
+                String invoiceId = remainingUtf8(payload);
+                entries.put(key, new Entry(key, null, Status.Issued, invoiceId.isEmpty() ? null : invoiceId, null));
+            }
+            case FAILED -> entries.put(key, new Entry(key, previous.request(), Status.Failed, null, remainingUtf8(payload)));
+            default -> throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+
+    private static String remainingUtf8(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
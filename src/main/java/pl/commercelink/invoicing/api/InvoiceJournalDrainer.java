@@ -0,0 +1,80 @@
+package pl.commercelink.invoicing.api;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Background worker that submits pending {@link InvoiceJournal} entries to a provider in batches through
+ * {@link InvoicingProvider#createInvoices} and records each outcome. A request the provider definitely rejected, by
+ * default one that failed with an {@link IllegalArgumentException}, {@link UnsupportedOperationException} or
+ * {@link BulkheadRejectedException}, is marked {@link InvoiceJournal.Status#Failed} and not retried automatically.
+ * Any other failure, such as a timeout or an I/O error, may come after the invoice was issued, so the entry stays
+ * {@link InvoiceJournal.Status#Attempted}, as do all entries of a batch call that throws. The failure of a scheduled
+ * run is available from {@link #lastFailure()}.
+ */
+public final class InvoiceJournalDrainer implements AutoCloseable {
+
+    private final InvoiceJournal journal;
+    private final InvoicingProvider provider;
+    private final int batchSize;
+    private final Predicate<RuntimeException> isRejection;
+    // a failed run leaves its claimed entries Attempted, where InvoiceJournal.uncertain() reports them
+    private final PeriodicTask task = new PeriodicTask("invoice-journal-drainer", this::drain);
+
+    public InvoiceJournalDrainer(InvoiceJournal journal, InvoicingProvider provider, int batchSize) {
+        this(journal, provider, batchSize, InvoiceJournalDrainer::isDefiniteRejection);
+    }
+
+    /** {@code isRejection} tells failures that prove the invoice was not issued, e.g. a provider's validation errors. */
+    public InvoiceJournalDrainer(InvoiceJournal journal, InvoicingProvider provider, int batchSize, Predicate<RuntimeException> isRejection) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.journal = journal;
+        this.provider = provider;
+        this.batchSize = batchSize;
+        this.isRejection = isRejection;
+    }
+
+    /** Drains the journal every {@code interval} until closed. */
+    public void start(Duration interval) {
+        task.start(interval);
+    }
+
+    /** Submits pending entries until none are left and returns how many invoices were issued. */
+    public int drain() {
+        int issued = 0;
+        List<InvoiceJournal.Entry> batch;
+        while (!(batch = journal.claim(batchSize)).isEmpty()) {
+            List<InvoiceCreationResult> results = provider.createInvoices(batch.stream().map(InvoiceJournal.Entry::request).toList());
+            for (int i = 0; i < results.size(); i++) {
+                InvoiceCreationResult result = results.get(i);
+                String key = batch.get(i).key();
+                if (result.isSuccess()) {
+                    journal.markIssued(key, result.invoice() != null ? result.invoice().id() : null);
+                    issued++;
+                } else if (isRejection.test(result.failure())) {
+                    journal.markFailed(key, String.valueOf(result.failure()));
+                }
+            }
+        }
+        return issued;
+    }
+
+    /** Returns what ended the last scheduled run, or null if it completed. */
+    public Throwable lastFailure() {
+        return task.lastFailure();
+    }
+
+    static boolean isDefiniteRejection(RuntimeException failure) {
+        return failure instanceof IllegalArgumentException
+                || failure instanceof UnsupportedOperationException
+                || failure instanceof BulkheadRejectedException;
+    }
+
+    @Override
+    public void close() {
+        task.close();
+    }
+}
@@ -0,0 +1,59 @@
+package pl.commercelink.invoicing.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers "which invoices reference order X" in constant time. Each invoice's comma-separated order ids are parsed
+ * once when the index is built, and lookups are case-insensitive, matching {@link Invoice#hasOrderId}.
+ */
+public final class InvoiceOrderIndex {
+
+    private final Map<String, List<Invoice>> invoicesByOrderId;
+
+    private InvoiceOrderIndex(Map<String, List<Invoice>> invoicesByOrderId) {
+        this.invoicesByOrderId = invoicesByOrderId;
+    }
+
+    public static InvoiceOrderIndex of(Collection<Invoice> invoices) {
+        Map<String, List<Invoice>> index = new HashMap<>();
+        for (Invoice invoice : invoices) {
+            for (String orderId : invoice.orderIds()) {
+                List<Invoice> matches = index.computeIfAbsent(foldCase(orderId), key -> new ArrayList<>(1));
+                if (matches.isEmpty() || matches.get(matches.size() - 1) != invoice) {
+                    matches.add(invoice);
+                }
+            }
+        }
+        index.replaceAll((orderId, matches) -> List.copyOf(matches));
+        return new InvoiceOrderIndex(index);
+    }
+
+    /** Returns invoices referencing the order, in the order they were indexed, or empty list if none. */
+    public List<Invoice> invoicesFor(String orderId) {
+        if (orderId == null) {
+            return List.of();
+        }
+        return invoicesByOrderId.getOrDefault(foldCase(orderId), List.of());
+    }
+
+    public boolean contains(String orderId) {
+        return !invoicesFor(orderId).isEmpty();
+    }
+
+    public int orderCount() {
+        return invoicesByOrderId.size();
+    }
+
+    /** Folds case the way {@link String#equalsIgnoreCase} compares characters, so equal keys hash equally. */
+    private static String foldCase(String value) {
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,14 @@
+package pl.commercelink.invoicing.api;
+
+import java.util.List;
+
+/** One page of query results; {@code nextPageToken} is null on the last page. */
+public record InvoicePage(List<Invoice> invoices, String nextPageToken) {
+    public InvoicePage {
+        invoices = invoices != null ? List.copyOf(invoices) : List.of();
+    }
+
+    public boolean hasNext() {
+        return nextPageToken != null;
+    }
+}
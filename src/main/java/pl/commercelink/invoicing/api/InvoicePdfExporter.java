@@ -0,0 +1,121 @@
+package pl.commercelink.invoicing.api;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exports invoice PDFs into a ZIP archive, one {@code <invoice id>.pdf} entry per invoice in input order.
+ * At most {@code parallelism} PDFs are fetched at once, on virtual threads; each is written to the archive as soon as
+ * it and every document before it have arrived, and the next fetch starts only when a slot frees up. Memory therefore
+ * stays at a few documents whatever the archive size. A missing PDF or failed fetch is recorded in the report and
+ * the export carries on; only a failure to write the archive or an {@link Error} from the provider aborts it. The
+ * report maps each exported id to its entry name, since ids are sanitized and clashing names get a suffix.
+ */
+public class InvoicePdfExporter {
+
+    private final InvoicingProvider provider;
+    private final int parallelism;
+
+    public InvoicePdfExporter(InvoicingProvider provider, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.provider = provider;
+        this.parallelism = parallelism;
+    }
+
+    /** Writes the archive to {@code out} and finishes it, leaving {@code out} open. */
+    public PdfExportReport export(Collection<String> invoiceIds, OutputStream out) throws IOException {
+        Iterator<String> ids = new LinkedHashSet<>(invoiceIds).iterator();
+        ArrayDeque<Fetch> window = new ArrayDeque<>(parallelism);
+        List<String> missing = new ArrayList<>();
+        Map<String, RuntimeException> failures = new LinkedHashMap<>();
+        Map<String, String> entries = new LinkedHashMap<>();
+        Set<String> entryNames = new HashSet<>();
+        long bytes = 0;
+
+        ZipOutputStream zip = new ZipOutputStream(out);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            try {
+                while (ids.hasNext() || !window.isEmpty()) {
+                    while (ids.hasNext() && window.size() < parallelism) {
+                        String id = ids.next();
+                        window.addLast(new Fetch(id, executor.submit(() -> provider.fetchInvoicePdf(id))));
+                    }
+                    Fetch next = window.removeFirst();
+                    byte[] pdf;
+                    try {
+                        pdf = next.pdf.get();
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof Error error) {
+                            throw error;
+                        }
+                        failures.put(next.invoiceId, e.getCause() instanceof RuntimeException runtime
+                                ? runtime : new IllegalStateException(e.getCause()));
+                        continue;
+                    }
+                    if (pdf == null) {
+                        missing.add(next.invoiceId);
+                        continue;
+                    }
+                    String name = entryName(next.invoiceId, entryNames);
+                    write(zip, name, pdf);
+                    entries.put(next.invoiceId, name);
+                    bytes += pdf.length;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("PDF export interrupted");
+            } finally {
+                window.forEach(fetch -> fetch.pdf.cancel(true));
+            }
+        }
+        zip.finish();
+        return new PdfExportReport(entries.size(), bytes, entries, missing, failures);
+    }
+
+    /** PDFs are compressed already, so entries are stored rather than deflated. */
+    private static void write(ZipOutputStream zip, String name, byte[] pdf) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(pdf);
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(pdf.length);
+        entry.setCompressedSize(pdf.length);
+        entry.setCrc(crc.getValue());
+        zip.putNextEntry(entry);
+        zip.write(pdf);
+        zip.closeEntry();
+    }
+
+    /** File-name-safe entry name; ids that clash after sanitizing get a numeric suffix. */
+    static String entryName(String invoiceId, Set<String> taken) {
+        String base = invoiceId.replaceAll("[^A-Za-z0-9._-]", "_");
+        String name = base + ".pdf";
+        for (int i = 2; !taken.add(name); i++) {
+            name = base + "-" + i + ".pdf";
+        }
+        return name;
+    }
+
+    private record Fetch(String invoiceId, Future<byte[]> pdf) {
+    }
+}
@@ -0,0 +1,170 @@
+package pl.commercelink.invoicing.api;
+
+import java.math.BigDecimal;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable struct-of-arrays storage for large position lists: quantities, minor-unit net and gross unit prices and
+ * VAT rate indexes live in primitive arrays. It is still a {@code List<InvoicePosition>}, and {@link #get} builds
+ * the position on demand. Totals and VAT grouping run over the arrays without creating position objects, and
+ * {@link Invoice} keeps the instance as is instead of copying it.
+ */
+public final class InvoicePositionColumns extends AbstractList<InvoicePosition> implements RandomAccess {
+
+    private final String[] ids;
+    private final String[] names;
+    private final int[] quantities;
+    private final long[] netMinorUnits;
+    private final long[] grossMinorUnits;
+    private final int[] vatRates;
+    private final String[] currencies;
+
+    private InvoicePositionColumns(Builder builder) {
+        int size = builder.size;
+        this.ids = Arrays.copyOf(builder.ids, size);
+        this.names = Arrays.copyOf(builder.names, size);
+        this.quantities = Arrays.copyOf(builder.quantities, size);
+        this.netMinorUnits = Arrays.copyOf(builder.netMinorUnits, size);
+        this.grossMinorUnits = Arrays.copyOf(builder.grossMinorUnits, size);
+        this.vatRates = Arrays.copyOf(builder.vatRates, size);
+        this.currencies = Arrays.copyOf(builder.currencies, size);
+    }
+
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    public static InvoicePositionColumns of(List<InvoicePosition> positions) {
+        if (positions instanceof InvoicePositionColumns columns) {
+            return columns;
+        }
+        Builder builder = builder(positions.size());
+        for (InvoicePosition position : positions) {
+            builder.add(position);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public InvoicePosition get(int index) {
+        return new InvoicePosition(ids[index], names[index], quantities[index], unitPrice(index).toPrice());
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    public int qty(int index) {
+        return quantities[index];
+    }
+
+    public CompactPrice unitPrice(int index) {
+        return CompactPrice.ofMinorUnits(netMinorUnits[index], grossMinorUnits[index], VatRateTable.byIndex(vatRates[index]), currencies[index]);
+    }
+
+    /** Sum of net unit price times quantity over all positions, in minor units, regardless of currency. */
+    public long netTotalMinorUnits() {
+        long total = 0;
+        for (int i = 0; i < quantities.length; i++) {
+            total = Math.addExact(total, Math.multiplyExact(netMinorUnits[i], quantities[i]));
+        }
+        return total;
+    }
+
+    /** Sum of gross unit price times quantity over all positions, in minor units, regardless of currency. */
+    public long grossTotalMinorUnits() {
+        long total = 0;
+        for (int i = 0; i < quantities.length; i++) {
+            total = Math.addExact(total, Math.multiplyExact(grossMinorUnits[i], quantities[i]));
+        }
+        return total;
+    }
+
+    public BigDecimal netTotal() {
+        return BigDecimal.valueOf(netTotalMinorUnits(), 2);
+    }
+
+    public BigDecimal grossTotal() {
+        return BigDecimal.valueOf(grossTotalMinorUnits(), 2);
+    }
+
+    /** Adds every position's total to the breakdown. */
+    public void addTo(VatBreakdown breakdown) {
+        for (int i = 0; i < quantities.length; i++) {
+            breakdown.add(currencies[i], VatRateTable.byIndex(vatRates[i]).percent,
+                    Math.multiplyExact(netMinorUnits[i], quantities[i]),
+                    Math.multiplyExact(grossMinorUnits[i], quantities[i]));
+        }
+    }
+
+    public static class Builder {
+        private String[] ids;
+        private String[] names;
+        private int[] quantities;
+        private long[] netMinorUnits;
+        private long[] grossMinorUnits;
+        private int[] vatRates;
+        private String[] currencies;
+        private int size;
+
+        private Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 8);
+            ids = new String[capacity];
+            names = new String[capacity];
+            quantities = new int[capacity];
+            netMinorUnits = new long[capacity];
+            grossMinorUnits = new long[capacity];
+            vatRates = new int[capacity];
+            currencies = new String[capacity];
+        }
+
+        public Builder add(InvoicePosition position) {
+            return add(position.id(), position.name(), position.qty(), position.price());
+        }
+
+        /** Columns have no slot for a missing price, so positions without one are rejected. */
+        public Builder add(String id, String name, int qty, Price unitPrice) {
+            if (unitPrice == null) {
+                throw new IllegalArgumentException("Position " + id + " has no price");
+            }
+            return add(id, name, qty, CompactPrice.of(unitPrice));
+        }
+
+        public Builder add(String id, String name, int qty, CompactPrice unitPrice) {
+            if (unitPrice == null) {
+                throw new IllegalArgumentException("Position " + id + " has no price");
+            }
+            if (size == ids.length) {
+                grow();
+            }
+            ids[size] = id;
+            names[size] = name;
+            quantities[size] = qty;
+            netMinorUnits[size] = unitPrice.netMinorUnits();
+            grossMinorUnits[size] = unitPrice.grossMinorUnits();
+            vatRates[size] = unitPrice.rate().index;
+            currencies[size] = unitPrice.currency();
+            size++;
+            return this;
+        }
+
+        public InvoicePositionColumns build() {
+            return new InvoicePositionColumns(this);
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            netMinorUnits = Arrays.copyOf(netMinorUnits, capacity);
+            grossMinorUnits = Arrays.copyOf(grossMinorUnits, capacity);
+            vatRates = Arrays.copyOf(vatRates, capacity);
+            currencies = Arrays.copyOf(currencies, capacity);
+        }
+    }
+}
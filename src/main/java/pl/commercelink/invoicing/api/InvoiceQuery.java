@@ -0,0 +1,40 @@
+package pl.commercelink.invoicing.api;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/** Invoices of one direction whose sell or issue date falls within {@code from} and {@code to}, both inclusive. */
+public record InvoiceQuery(
+        InvoiceDirection direction,
+        InvoiceDateType dateType,
+        LocalDate from,
+        LocalDate to,
+        int pageSize
+) {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    public InvoiceQuery {
+        Objects.requireNonNull(direction, "direction");
+        Objects.requireNonNull(dateType, "dateType");
+        Objects.requireNonNull(from, "from");
+        Objects.requireNonNull(to, "to");
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("to " + to + " is before from " + from);
+        }
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+        }
+    }
+
+    public static InvoiceQuery bySellDate(InvoiceDirection direction, LocalDate from, LocalDate to) {
+        return new InvoiceQuery(direction, InvoiceDateType.SellDate, from, to, DEFAULT_PAGE_SIZE);
+    }
+
+    public static InvoiceQuery byIssueDate(InvoiceDirection direction, LocalDate from, LocalDate to) {
+        return new InvoiceQuery(direction, InvoiceDateType.IssueDate, from, to, DEFAULT_PAGE_SIZE);
+    }
+
+    public InvoiceQuery withPageSize(int pageSize) {
+        return new InvoiceQuery(direction, dateType, from, to, pageSize);
+    }
+}
@@ -0,0 +1,132 @@
+package pl.commercelink.invoicing.api;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JFR event for one {@link InvoicingProvider} call, emitted by {@link JfrInvoicingProvider}. Disabled by default;
+ * enable it with {@code jfr configure +pl.commercelink.invoicing.ProviderCall#enabled=true} or in a recording's settings.
+ */
+@Name("pl.commercelink.invoicing.ProviderCall")
+@Label("Invoicing Provider Call")
+@Category({"CommerceLink", "Invoicing"})
+@Description("A call into an invoicing provider")
+@Enabled(false)
+@StackTrace(false)
+final class InvoicingEvent extends jdk.jfr.Event {
+
+    @Label("Provider")
+    String provider;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Invoice Kind")
+    String kind;
+
+    @Label("Direction")
+    String direction;
+
+    @Label("Invoices")
+    @Description("Invoices sent or returned")
+    int invoices;
+
+    @Label("Positions")
+    @Description("Positions of the invoices sent or returned")
+    int positions;
+
+    @Label("Failed")
+    @Description("Requests of a batch create that failed")
+    int failed;
+
+    @Label("Payload Size")
+    @Description("PDF size; 0 for calls that do not transfer a PDF")
+    @DataAmount
+    long payloadSize;
+
+    @Label("Success")
+    boolean success;
+
+    @Label("Error")
+    String error;
+
+    void finish(Throwable failure, Invoice invoice) {
+        end();
+        if (shouldCommit()) {
+            if (invoice != null) {
+                invoices = 1;
+                positions = invoice.positions().size();
+            }
+            complete(failure);
+        }
+    }
+
+    void finish(Throwable failure, Collection<Invoice> result) {
+        end();
+        if (shouldCommit()) {
+            if (result != null) {
+                count(result);
+            }
+            complete(failure);
+        }
+    }
+
+    void finishGroups(Throwable failure, Collection<List<Invoice>> groups) {
+        end();
+        if (shouldCommit()) {
+            if (groups != null) {
+                for (List<Invoice> group : groups) {
+                    count(group);
+                }
+            }
+            complete(failure);
+        }
+    }
+
+    /** A batch counts as failed when any of its requests failed; {@code error} then names the first such failure. */
+    void finishBatch(Throwable failure, List<InvoiceCreationResult> results) {
+        end();
+        if (shouldCommit()) {
+            if (results != null) {
+                for (InvoiceCreationResult result : results) {
+                    if (!result.isSuccess()) {
+                        failed++;
+                        if (failure == null) {
+                            failure = result.failure();
+                        }
+                    }
+                }
+            }
+            complete(failure);
+        }
+    }
+
+    void finish(Throwable failure, long payloadSize) {
+        end();
+        if (shouldCommit()) {
+            this.payloadSize = Math.max(0, payloadSize);
+            complete(failure);
+        }
+    }
+
+    private void count(Collection<Invoice> result) {
+        invoices += result.size();
+        for (Invoice invoice : result) {
+            positions += invoice.positions().size();
+        }
+    }
+
+    private void complete(Throwable failure) {
+        success = failure == null;
+        error = failure != null ? failure.getClass().getName() : null;
+        commit();
+    }
+}
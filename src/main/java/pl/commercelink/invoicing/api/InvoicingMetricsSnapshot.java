@@ -0,0 +1,29 @@
+package pl.commercelink.invoicing.api;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Point-in-time view of the metrics collected by {@link MetricsInvoicingProvider}. Latencies and
+ * {@code pdfStreamTimes}, measured from opening a PDF stream to closing it, are in nanoseconds.
+ */
+public record InvoicingMetricsSnapshot(
+        String providerName,
+        List<OperationStats> operations,
+        Map<InvoiceKind, Long> createdByKind,
+        Map<InvoiceKind, Long> failedByKind,
+        Histogram.Snapshot pdfSizes,
+        Histogram.Snapshot pdfStreamTimes
+) {
+
+    /** Statistics for one operation; {@code direction} is null for operations that do not take one. */
+    public record OperationStats(
+            InvoicingOperation operation,
+            InvoiceDirection direction,
+            long calls,
+            long errors,
+            long inFlight,
+            Histogram.Snapshot latency
+    ) {
+    }
+}
@@ -0,0 +1,20 @@
+package pl.commercelink.invoicing.api;
+
+/** The {@link InvoicingProvider} methods, for labelling metrics, limits and recordings. */
+public enum InvoicingOperation {
+    CreateInvoice,
+    CreateInvoices,
+    FetchInvoiceById,
+    FetchInvoicesByOrderId,
+    FetchInvoicesByIds,
+    FetchInvoicesByOrderIds,
+    FetchInvoicePage,
+    FetchInvoiceChanges,
+    FetchInvoicePdf,
+    WriteInvoicePdf,
+    TransferInvoicePdf,
+    OpenInvoicePdf,
+    FetchCostCenterById,
+    FetchBillingPartyById,
+    FetchBillingPartyByShortcut
+}
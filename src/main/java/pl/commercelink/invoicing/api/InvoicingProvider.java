@@ -1,20 +1,117 @@
 package pl.commercelink.invoicing.api;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 public interface InvoicingProvider {
 
+    /** Maximum number of concurrent single calls made by the default batch implementations. */
+    int DEFAULT_BATCH_CONCURRENCY = 8;
+
     Invoice createInvoice(InvoiceRequest request);
 
+    /**
+     * Creates an invoice for every request and returns one result per request, in request order.
+     * A failed request does not stop the others. The default fans out over {@link #createInvoice}
+     * with at most {@link #DEFAULT_BATCH_CONCURRENCY} calls in flight; override it if the backend has a bulk endpoint.
+     */
+    default List<InvoiceCreationResult> createInvoices(Collection<InvoiceRequest> requests) {
+        return ParallelCalls.map(requests, DEFAULT_BATCH_CONCURRENCY, request -> {
+            try {
+                return InvoiceCreationResult.success(request, createInvoice(request));
+            } catch (RuntimeException e) {
+                return InvoiceCreationResult.failure(request, e);
+            }
+        });
+    }
+
     /** Returns invoice with positions, or null if not found. */
     Invoice fetchInvoiceById(String invoiceId, InvoiceDirection direction);
 
     /** Returns invoices matching the order ID, or empty list if none found. */
     List<Invoice> fetchInvoicesByOrderId(String orderId, InvoiceDirection direction);
 
+    /**
+     * Returns the invoices with the given ids, keyed by id in input order; ids that are not found are left out.
+     * The default fans out over {@link #fetchInvoiceById} with at most {@link #DEFAULT_BATCH_CONCURRENCY} calls in flight;
+     * override it if the backend can fetch many invoices in one round trip. If any lookup throws, the whole call fails
+     * with that exception and the other results are discarded.
+     */
+    default Map<String, Invoice> fetchInvoicesByIds(Collection<String> invoiceIds, InvoiceDirection direction) {
+        return ParallelCalls.mapByKey(invoiceIds, DEFAULT_BATCH_CONCURRENCY, invoiceId -> fetchInvoiceById(invoiceId, direction));
+    }
+
+    /**
+     * Returns the invoices of every given order, keyed by order id in input order; orders without invoices map to an empty list.
+     * The default fans out over {@link #fetchInvoicesByOrderId} like {@link #fetchInvoicesByIds}, and likewise fails as a
+     * whole if any lookup throws.
+     */
+    default Map<String, List<Invoice>> fetchInvoicesByOrderIds(Collection<String> orderIds, InvoiceDirection direction) {
+        return ParallelCalls.mapByKey(orderIds, DEFAULT_BATCH_CONCURRENCY,
+                orderId -> Objects.requireNonNullElse(fetchInvoicesByOrderId(orderId, direction), List.of()));
+    }
+
+    /**
+     * Returns one page of invoices matching the query; pass null as {@code pageToken} for the first page.
+     * Optional: the default throws {@link UnsupportedOperationException}.
+     */
+    default InvoicePage fetchInvoicePage(InvoiceQuery query, String pageToken) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support invoice queries");
+    }
+
+    /**
+     * Streams every invoice matching the query. Pages are fetched lazily through {@link #fetchInvoicePage},
+     * one page ahead of the consumer. Close the stream when abandoning it early.
+     */
+    default Stream<Invoice> streamInvoices(InvoiceQuery query) {
+        return PrefetchingInvoiceIterator.stream(this, query);
+    }
+
+    /**
+     * Returns up to {@code limit} invoices created or modified after {@code watermark}, oldest change first; pass null
+     * to start from the beginning of the feed. See {@link InvoiceChangePoller} for a consumer that keeps the watermark.
+     * Optional: the default throws {@link UnsupportedOperationException}.
+     */
+    default InvoiceChanges fetchInvoiceChanges(InvoiceDirection direction, String watermark, int limit) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support a change feed");
+    }
+
     /** Returns raw PDF bytes for the invoice. */
     byte[] fetchInvoicePdf(String invoiceId);
 
+    /**
+     * Writes the invoice PDF to {@code out} and returns the number of bytes written, or -1 if there is no PDF.
+     * The default bridges from {@link #fetchInvoicePdf}; providers that can stream from the backend should override it.
+     */
+    default long writeInvoicePdf(String invoiceId, OutputStream out) throws IOException {
+        byte[] pdf = fetchInvoicePdf(invoiceId);
+        if (pdf == null) {
+            return -1;
+        }
+        out.write(pdf);
+        return pdf.length;
+    }
+
+    /** Writes the invoice PDF to {@code target} and returns the number of bytes written, or -1 if there is no PDF. */
+    default long transferInvoicePdf(String invoiceId, WritableByteChannel target) throws IOException {
+        return writeInvoicePdf(invoiceId, Channels.newOutputStream(target));
+    }
+
+    /** Returns a stream over the invoice PDF that the caller must close, or null if there is no PDF. */
+    default InputStream openInvoicePdf(String invoiceId) throws IOException {
+        byte[] pdf = fetchInvoicePdf(invoiceId);
+        return pdf != null ? new ByteArrayInputStream(pdf) : null;
+    }
+
     /** Returns the company (cost center) for this provider, or null if not found. */
     BillingParty fetchCostCenterById(String costCenterId);
 
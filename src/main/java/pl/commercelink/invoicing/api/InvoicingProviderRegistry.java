@@ -0,0 +1,98 @@
+package pl.commercelink.invoicing.api;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Discovers {@link InvoicingProviderDescriptor}s once and creates each provider only when it is first requested.
+ * Lookups by name are a hash map read, and a created provider is reused for the lifetime of the registry.
+ * How a descriptor is named and turned into a provider is defined by provider-api, so both are passed in, e.g.
+ * {@code InvoicingProviderRegistry.load(InvoicingProviderDescriptor::name, descriptor -> descriptor.create(config))}.
+ */
+public final class InvoicingProviderRegistry {
+
+    private final Map<String, Registration> registrations;
+
+    public InvoicingProviderRegistry(Iterable<? extends InvoicingProviderDescriptor> descriptors,
+                                     Function<? super InvoicingProviderDescriptor, String> naming,
+                                     Function<? super InvoicingProviderDescriptor, ? extends InvoicingProvider> factory) {
+        Map<String, Registration> byName = new HashMap<>();
+        for (InvoicingProviderDescriptor descriptor : descriptors) {
+            String name = naming.apply(descriptor);
+            Registration previous = byName.put(name, new Registration(descriptor, factory));
+            if (previous != null) {
+                throw new IllegalStateException("Duplicate invoicing provider name " + name + ": "
+                        + previous.descriptor.getClass().getName() + " and " + descriptor.getClass().getName());
+            }
+        }
+        this.registrations = Map.copyOf(byName);
+    }
+
+    /** Scans the class path for descriptors with {@link ServiceLoader}. */
+    public static InvoicingProviderRegistry load(Function<? super InvoicingProviderDescriptor, String> naming,
+                                                 Function<? super InvoicingProviderDescriptor, ? extends InvoicingProvider> factory) {
+        return new InvoicingProviderRegistry(ServiceLoader.load(InvoicingProviderDescriptor.class), naming, factory);
+    }
+
+    public Set<String> names() {
+        return registrations.keySet();
+    }
+
+    /** Returns the descriptor registered under the name, or null if not found. */
+    public InvoicingProviderDescriptor descriptor(String name) {
+        Registration registration = registrations.get(name);
+        return registration != null ? registration.descriptor : null;
+    }
+
+    /** Returns the provider registered under the name, creating it on first use, or null if not found. */
+    public InvoicingProvider provider(String name) {
+        Registration registration = registrations.get(name);
+        return registration != null ? registration.provider() : null;
+    }
+
+    public boolean isCreated(String name) {
+        Registration registration = registrations.get(name);
+        return registration != null && registration.provider != null;
+    }
+
+    /** Creates the named providers in parallel on virtual threads; the future fails if any of them fails. */
+    public CompletableFuture<Void> warmUp(Collection<String> names) {
+        return CompletableFuture.allOf(names.stream()
+                .map(name -> CompletableFuture.runAsync(() -> {
+                    if (provider(name) == null) {
+                        throw new IllegalArgumentException("Unknown invoicing provider " + name);
+                    }
+                }, runnable -> Thread.ofVirtual().name("invoicing-warm-up-" + name).start(runnable)))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    private static final class Registration {
+        private final InvoicingProviderDescriptor descriptor;
+        private final Function<? super InvoicingProviderDescriptor, ? extends InvoicingProvider> factory;
+        private volatile InvoicingProvider provider;
+
+        Registration(InvoicingProviderDescriptor descriptor, Function<? super InvoicingProviderDescriptor, ? extends InvoicingProvider> factory) {
+            this.descriptor = descriptor;
+            this.factory = factory;
+        }
+
+        InvoicingProvider provider() {
+            InvoicingProvider created = provider;
+            if (created == null) {
+                synchronized (this) {
+                    created = provider;
+                    if (created == null) {
+                        created = factory.apply(descriptor);
+                        provider = created;
+                    }
+                }
+            }
+            return created;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package pl.commercelink.invoicing.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Emits a {@code pl.commercelink.invoicing.ProviderCall} JFR event around every call to the wrapped provider, so
+ * provider latency lines up with GC, lock and socket activity in one recording. The event is disabled by default;
+ * while it is off, a call costs an {@code isEnabled()} check and nothing is computed or recorded.
+ */
+public class JfrInvoicingProvider extends ForwardingInvoicingProvider {
+
+    private final String providerName;
+
+    public JfrInvoicingProvider(InvoicingProvider delegate, String providerName) {
+        super(delegate);
+        this.providerName = providerName;
+    }
+
+    @Override
+    public Invoice createInvoice(InvoiceRequest request) {
+        InvoicingEvent event = begin(InvoicingOperation.CreateInvoice, request.invoiceKind(), null);
+        if (event.isEnabled()) {
+            event.invoices = 1;
+            event.positions = request.positions() != null ? request.positions().size() : 0;
+        }
+        return record(() -> delegate.createInvoice(request), (failure, invoice) -> event.finish(failure, 0L));
+    }
+
+    @Override
+    public List<InvoiceCreationResult> createInvoices(Collection<InvoiceRequest> requests) {
+        InvoicingEvent event = begin(InvoicingOperation.CreateInvoices, null, null);
+        if (event.isEnabled()) {
+            event.invoices = requests.size();
+            for (InvoiceRequest request : requests) {
+                event.positions += request.positions() != null ? request.positions().size() : 0;
+            }
+        }
+        return record(() -> delegate.createInvoices(requests), event::finishBatch);
+    }
+
+    @Override
+    public Invoice fetchInvoiceById(String invoiceId, InvoiceDirection direction) {
+        InvoicingEvent event = begin(InvoicingOperation.FetchInvoiceById, null, direction);
+        return record(() -> delegate.fetchInvoiceById(invoiceId, direction), event::finish);
+    }
+
+    @Override
+    public List<Invoice> fetchInvoicesByOrderId(String orderId, InvoiceDirection direction) {
+        InvoicingEvent event = begin(InvoicingOperation.FetchInvoicesByOrderId, null, direction);
+        return record(() -> delegate.fetchInvoicesByOrderId(orderId, direction), event::finish);
+    }
+
+    @Override
+    public Map<String, Invoice> fetchInvoicesByIds(Collection<String> invoiceIds, InvoiceDirection direction) {
+        InvoicingEvent event = begin(InvoicingOperation.FetchInvoicesByIds, null, direction);
+        return record(() -> delegate.fetchInvoicesByIds(invoiceIds, direction),
+                (failure, invoices) -> event.finish(failure, invoices != null ? invoices.values() : null));
+    }
+
+    @Override
+    public Map<String, List<Invoice>> fetchInvoicesByOrderIds(Collection<String> orderIds, InvoiceDirection direction) {
+        InvoicingEvent event = begin(InvoicingOperation.FetchInvoicesByOrderIds, null, direction);
+        return record(() -> delegate.fetchInvoicesByOrderIds(orderIds, direction),
+                (failure, invoices) -> event.finishGroups(failure, invoices != null ? invoices.values() : null));
+    }
+
+    @Override
+    public InvoicePage fetchInvoicePage(InvoiceQuery query, String pageToken) {
+        InvoicingEvent event = begin(InvoicingOperation.FetchInvoicePage, null, query.direction());
+        return record(() -> delegate.fetchInvoicePage(query, pageToken),
+                (failure, page) -> event.finish(failure, page != null ? page.invoices() : null));
+    }
+
+    @Override
+    public InvoiceChanges fetchInvoiceChanges(InvoiceDirection direction, String watermark, int limit) {
+        InvoicingEvent event = begin(InvoicingOperation.FetchInvoiceChanges, null, direction);
+        return record(() -> delegate.fetchInvoiceChanges(direction, watermark, limit),
+                (failure, changes) -> event.finish(failure, changes != null ? changes.invoices() : null));
+    }
+
+    @Override
+    public byte[] fetchInvoicePdf(String invoiceId) {
+        InvoicingEvent event = begin(InvoicingOperation.FetchInvoicePdf, null, null);
+        return record(() -> delegate.fetchInvoicePdf(invoiceId),
+                (failure, pdf) -> event.finish(failure, pdf != null ? pdf.length : 0L));
+    }
+
+    @Override
+    public long writeInvoicePdf(String invoiceId, OutputStream out) throws IOException {
+        InvoicingEvent event = begin(InvoicingOperation.WriteInvoicePdf, null, null);
+        return record(() -> delegate.writeInvoicePdf(invoiceId, out),
+                (failure, written) -> event.finish(failure, written != null ? written : 0L));
+    }
+
+    @Override
+    public long transferInvoicePdf(String invoiceId, WritableByteChannel target) throws IOException {
+        InvoicingEvent event = begin(InvoicingOperation.TransferInvoicePdf, null, null);
+        return record(() -> delegate.transferInvoicePdf(invoiceId, target),
+                (failure, written) -> event.finish(failure, written != null ? written : 0L));
+    }
+
+    @Override
+    public InputStream openInvoicePdf(String invoiceId) throws IOException {
+        InvoicingEvent event = begin(InvoicingOperation.OpenInvoicePdf, null, null);
+        return record(() -> delegate.openInvoicePdf(invoiceId), (failure, pdf) -> event.finish(failure, 0L));
+    }
+
+    @Override
+    public BillingParty fetchCostCenterById(String costCenterId) {
+        InvoicingEvent event = begin(InvoicingOperation.FetchCostCenterById, null, null);
+        return record(() -> delegate.fetchCostCenterById(costCenterId), (failure, costCenter) -> event.finish(failure, 0L));
+    }
+
+    @Override
+    public BillingParty fetchBillingPartyById(String billingPartyId) {
+        InvoicingEvent event = begin(InvoicingOperation.FetchBillingPartyById, null, null);
+        return record(() -> delegate.fetchBillingPartyById(billingPartyId), (failure, billingParty) -> event.finish(failure, 0L));
+    }
+
+    @Override
+    public BillingParty fetchBillingPartyByShortcut(String billingPartyShortcut) {
+        InvoicingEvent event = begin(InvoicingOperation.FetchBillingPartyByShortcut, null, null);
+        return record(() -> delegate.fetchBillingPartyByShortcut(billingPartyShortcut), (failure, billingParty) -> event.finish(failure, 0L));
+    }
+
+    /** Runs the call and hands its result, or whatever it threw, Errors included, to {@code finish}. */
+    private static <T, E extends Exception> T record(Call<T, E> call, Finish<T> finish) throws E {
+        Throwable failure = null;
+        T result = null;
+        try {
+            result = call.call();
+            return result;
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            finish.finish(failure, result);
+        }
+    }
+
+    private InvoicingEvent begin(InvoicingOperation operation, InvoiceKind kind, InvoiceDirection direction) {
+        InvoicingEvent event = new InvoicingEvent();
+        if (event.isEnabled()) {
+            event.provider = providerName;
+            event.operation = operation.name();
+            event.kind = kind != null ? kind.name() : null;
+            event.direction = direction != null ? direction.name() : null;
+            event.begin();
+        }
+        return event;
+    }
+
+    @FunctionalInterface
+    private interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    @FunctionalInterface
+    private interface Finish<T> {
+        void finish(Throwable failure, T result);
+    }
+}
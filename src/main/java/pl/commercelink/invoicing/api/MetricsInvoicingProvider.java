@@ -0,0 +1,390 @@
+package pl.commercelink.invoicing.api;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records per-operation call counts, error counts, in-flight gauges and latency histograms for the wrapped provider,
+ * split by {@link InvoiceDirection} where the operation takes one. Also tracks PDF sizes, how long opened PDF
+ * streams stay open, and how many invoices of each {@link InvoiceKind} were created or failed. A batch create
+ * counts as an error when any of its requests failed. Recording is allocation-free apart from the stream returned
+ * by {@link #openInvoicePdf}; read the data with {@link #snapshot()}.
+ */
+public class MetricsInvoicingProvider extends ForwardingInvoicingProvider {
+
+    private static final InvoiceDirection[] DIRECTIONS = InvoiceDirection.values();
+
+    private final String providerName;
+    private final Map<InvoicingOperation, OperationMetrics[]> operations = new EnumMap<>(InvoicingOperation.class);
+    private final LongAdder[] createdByKind = newCounters();
+    private final LongAdder[] failedByKind = newCounters();
+    private final Histogram pdfSizes = new Histogram();
+    private final Histogram pdfStreamTimes = new Histogram();
+
+    public MetricsInvoicingProvider(InvoicingProvider delegate, String providerName) {
+        super(delegate);
+        this.providerName = providerName;
+        for (InvoicingOperation operation : InvoicingOperation.values()) {
+            OperationMetrics[] byDirection = new OperationMetrics[DIRECTIONS.length + 1];
+            for (int i = 0; i < byDirection.length; i++) {
+                byDirection[i] = new OperationMetrics();
+            }
+            operations.put(operation, byDirection);
+        }
+    }
+
+    @Override
+    public Invoice createInvoice(InvoiceRequest request) {
+        OperationMetrics metrics = metrics(InvoicingOperation.CreateInvoice, null);
+        long start = metrics.begin();
+        boolean success = false;
+        try {
+            Invoice invoice = delegate.createInvoice(request);
+            success = true;
+            return invoice;
+        } finally {
+            countKind(request, success);
+            metrics.end(start, success);
+        }
+    }
+
+    @Override
+    public List<InvoiceCreationResult> createInvoices(Collection<InvoiceRequest> requests) {
+        OperationMetrics metrics = metrics(InvoicingOperation.CreateInvoices, null);
+        long start = metrics.begin();
+        boolean success = false;
+        try {
+            List<InvoiceCreationResult> results = delegate.createInvoices(requests);
+            success = true;
+            for (InvoiceCreationResult result : results) {
+                countKind(result.request(), result.isSuccess());
+                success &= result.isSuccess();
+            }
+            return results;
+        } finally {
+            metrics.end(start, success);
+        }
+    }
+
+    @Override
+    public Invoice fetchInvoiceById(String invoiceId, InvoiceDirection direction) {
+        OperationMetrics metrics = metrics(InvoicingOperation.FetchInvoiceById, direction);
+        long start = metrics.begin();
+        boolean success = false;
+        try {
+            Invoice invoice = delegate.fetchInvoiceById(invoiceId, direction);
+            success = true;
+            return invoice;
+        } finally {
+            metrics.end(start, success);
+        }
+    }
+
+    @Override
+    public List<Invoice> fetchInvoicesByOrderId(String orderId, InvoiceDirection direction) {
+        OperationMetrics metrics = metrics(InvoicingOperation.FetchInvoicesByOrderId, direction);
+        long start = metrics.begin();
+        boolean success = false;
+        try {
+            List<Invoice> invoices = delegate.fetchInvoicesByOrderId(orderId, direction);
+            success = true;
+            return invoices;
+        } finally {
+            metrics.end(start, success);
+        }
+    }
+
+    @Override
+    public Map<String, Invoice> fetchInvoicesByIds(Collection<String> invoiceIds, InvoiceDirection direction) {
+        OperationMetrics metrics = metrics(InvoicingOperation.FetchInvoicesByIds, direction);
+        long start = metrics.begin();
+        boolean success = false;
+        try {
+            Map<String, Invoice> invoices = delegate.fetchInvoicesByIds(invoiceIds, direction);
+            success = true;
+            return invoices;
+        } finally {
+            metrics.end(start, success);
+        }
+    }
+
+    @Override
+    public Map<String, List<Invoice>> fetchInvoicesByOrderIds(Collection<String> orderIds, InvoiceDirection direction) {
+        OperationMetrics metrics = metrics(InvoicingOperation.FetchInvoicesByOrderIds, direction);
+        long start = metrics.begin();
+        boolean success = false;
+        try {
+            Map<String, List<Invoice>> invoices = delegate.fetchInvoicesByOrderIds(orderIds, direction);
+            success = true;
+            return invoices;
+        } finally {
+            metrics.end(start, success);
+        }
+    }
+
+    @Override
+    public InvoicePage fetchInvoicePage(InvoiceQuery query, String pageToken) {
+        OperationMetrics metrics = metrics(InvoicingOperation.FetchInvoicePage, query.direction());
+        long start = metrics.begin();
+        boolean success = false;
+        try {
+            InvoicePage page = delegate.fetchInvoicePage(query, pageToken);
+            success = true;
+            return page;
+        } finally {
+            metrics.end(start, success);
+        }
+    }
+
+    @Override
+    public InvoiceChanges fetchInvoiceChanges(InvoiceDirection direction, String watermark, int limit) {
+        OperationMetrics metrics = metrics(InvoicingOperation.FetchInvoiceChanges, direction);
+        long start = metrics.begin();
+        boolean success = false;
+        try {
+            InvoiceChanges changes = delegate.fetchInvoiceChanges(direction, watermark, limit);
+            success = true;
+            return changes;
+        } finally {
+            metrics.end(start, success);
+        }
+    }
+
+    @Override
+    public byte[] fetchInvoicePdf(String invoiceId) {
+        OperationMetrics metrics = metrics(InvoicingOperation.FetchInvoicePdf, null);
+        long start = metrics.begin();
+        boolean success = false;
+        try {
+            byte[] pdf = delegate.fetchInvoicePdf(invoiceId);
+            if (pdf != null) {
+                pdfSizes.record(pdf.length);
+            }
+            success = true;
+            return pdf;
+        } finally {
+            metrics.end(start, success);
+        }
+    }
+
+    @Override
+    public long writeInvoicePdf(String invoiceId, OutputStream out) throws IOException {
+        OperationMetrics metrics = metrics(InvoicingOperation.WriteInvoicePdf, null);
+        long start = metrics.begin();
+        boolean success = false;
+        try {
+            long written = delegate.writeInvoicePdf(invoiceId, out);
+            if (written >= 0) {
+                pdfSizes.record(written);
+            }
+            success = true;
+            return written;
+        } finally {
+            metrics.end(start, success);
+        }
+    }
+
+    @Override
+    public long transferInvoicePdf(String invoiceId, WritableByteChannel target) throws IOException {
+        OperationMetrics metrics = metrics(InvoicingOperation.TransferInvoicePdf, null);
+        long start = metrics.begin();
+        boolean success = false;
+        try {
+            long written = delegate.transferInvoicePdf(invoiceId, target);
+            if (written >= 0) {
+                pdfSizes.record(written);
+            }
+            success = true;
+            return written;
+        } finally {
+            metrics.end(start, success);
+        }
+    }
+
+    @Override
+    public InputStream openInvoicePdf(String invoiceId) throws IOException {
+        OperationMetrics metrics = metrics(InvoicingOperation.OpenInvoicePdf, null);
+        long start = metrics.begin();
+        boolean success = false;
+        try {
+            InputStream pdf = delegate.openInvoicePdf(invoiceId);
+            success = true;
+            return pdf != null ? new MeasuringInputStream(pdf, start) : null;
+        } finally {
+            metrics.end(start, success);
+        }
+    }
+
+    @Override
+    public BillingParty fetchCostCenterById(String costCenterId) {
+        OperationMetrics metrics = metrics(InvoicingOperation.FetchCostCenterById, null);
+        long start = metrics.begin();
+        boolean success = false;
+        try {
+            BillingParty costCenter = delegate.fetchCostCenterById(costCenterId);
+            success = true;
+            return costCenter;
+        } finally {
+            metrics.end(start, success);
+        }
+    }
+
+    @Override
+    public BillingParty fetchBillingPartyById(String billingPartyId) {
+        OperationMetrics metrics = metrics(InvoicingOperation.FetchBillingPartyById, null);
+        long start = metrics.begin();
+        boolean success = false;
+        try {
+            BillingParty billingParty = delegate.fetchBillingPartyById(billingPartyId);
+            success = true;
+            return billingParty;
+        } finally {
+            metrics.end(start, success);
+        }
+    }
+
+    @Override
+    public BillingParty fetchBillingPartyByShortcut(String billingPartyShortcut) {
+        OperationMetrics metrics = metrics(InvoicingOperation.FetchBillingPartyByShortcut, null);
+        long start = metrics.begin();
+        boolean success = false;
+        try {
+            BillingParty billingParty = delegate.fetchBillingPartyByShortcut(billingPartyShortcut);
+            success = true;
+            return billingParty;
+        } finally {
+            metrics.end(start, success);
+        }
+    }
+
+    /** Returns the operations that were called at least once, plus the kind and PDF breakdowns. */
+    public InvoicingMetricsSnapshot snapshot() {
+        List<InvoicingMetricsSnapshot.OperationStats> stats = new ArrayList<>();
+        operations.forEach((operation, byDirection) -> {
+            for (int i = 0; i < byDirection.length; i++) {
+                OperationMetrics metrics = byDirection[i];
+                long calls = metrics.calls.sum();
+                if (calls > 0) {
+                    stats.add(new InvoicingMetricsSnapshot.OperationStats(
+                            operation, i == 0 ? null : DIRECTIONS[i - 1],
+                            calls, metrics.errors.sum(), metrics.inFlight.sum(), metrics.latency.snapshot()));
+                }
+            }
+        });
+        return new InvoicingMetricsSnapshot(providerName, List.copyOf(stats), byKind(createdByKind), byKind(failedByKind),
+                pdfSizes.snapshot(), pdfStreamTimes.snapshot());
+    }
+
+    private OperationMetrics metrics(InvoicingOperation operation, InvoiceDirection direction) {
+        return operations.get(operation)[direction == null ? 0 : direction.ordinal() + 1];
+    }
+
+    private void countKind(InvoiceRequest request, boolean created) {
+        if (request != null && request.invoiceKind() != null) {
+            (created ? createdByKind : failedByKind)[request.invoiceKind().ordinal()].increment();
+        }
+    }
+
+    private static LongAdder[] newCounters() {
+        LongAdder[] counters = new LongAdder[InvoiceKind.values().length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    private static Map<InvoiceKind, Long> byKind(LongAdder[] counters) {
+        Map<InvoiceKind, Long> kinds = new EnumMap<>(InvoiceKind.class);
+        for (InvoiceKind kind : InvoiceKind.values()) {
+            kinds.put(kind, counters[kind.ordinal()].sum());
+        }
+        return kinds;
+    }
+
+    /** Records the time from open to close, and the PDF size when the stream was read to the end. */
+    private final class MeasuringInputStream extends FilterInputStream {
+        private final long opened;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private long bytes;
+        private boolean complete;
+
+        MeasuringInputStream(InputStream in, long opened) {
+            super(in);
+            this.opened = opened;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b < 0) {
+                complete = true;
+            } else {
+                bytes++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read < 0) {
+                complete = true;
+            } else {
+                bytes += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            bytes += skipped;
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (closed.compareAndSet(false, true)) {
+                    pdfStreamTimes.record(System.nanoTime() - opened);
+                    if (complete) {
+                        pdfSizes.record(bytes);
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class OperationMetrics {
+        final LongAdder calls = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder inFlight = new LongAdder();
+        final Histogram latency = new Histogram();
+
+        long begin() {
+            calls.increment();
+            inFlight.increment();
+            return System.nanoTime();
+        }
+
+        void end(long start, boolean success) {
+            latency.record(System.nanoTime() - start);
+            inFlight.decrement();
+            if (!success) {
+                errors.increment();
+            }
+        }
+    }
+}
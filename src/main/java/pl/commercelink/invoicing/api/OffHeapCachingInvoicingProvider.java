@@ -0,0 +1,178 @@
+package pl.commercelink.invoicing.api;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Caches {@code fetchInvoiceById}, {@code fetchInvoicesByIds} and {@code fetchInvoicesByOrderId} results off the heap,
+ * serialized with {@link InvoiceCodec} into a direct buffer of {@code maximumBytes}, so cached invoices and their
+ * positions add nothing for the garbage collector to trace. Paid invoices expire after {@code paidTtl}; unpaid ones,
+ * which can still become paid, after the shorter {@code unpaidTtl}. An order's invoice list counts as paid only if
+ * every invoice in it is paid. Lookups that find nothing are not cached. Creating an invoice drops the cached invoice
+ * lists of its orders, so the new invoice shows up on the next lookup.
+ */
+public class OffHeapCachingInvoicingProvider extends ForwardingInvoicingProvider {
+
+    private final OffHeapStore store;
+    private final long paidTtl;
+    private final long unpaidTtl;
+
+    private OffHeapCachingInvoicingProvider(Builder builder) {
+        super(builder.delegate);
+        this.store = new OffHeapStore(builder.maximumBytes, builder.ticker);
+        this.paidTtl = builder.paidTtl.toNanos();
+        this.unpaidTtl = builder.unpaidTtl.toNanos();
+    }
+
+    public static Builder builder(InvoicingProvider delegate) {
+        return new Builder(delegate);
+    }
+
+    @Override
+    public Invoice createInvoice(InvoiceRequest request) {
+        try {
+            return delegate.createInvoice(request);
+        } finally {
+            invalidateOrders(request.orderId());
+        }
+    }
+
+    /** Invalidates the orders of every request, including failed ones, since a failure may come after the invoice was issued. */
+    @Override
+    public List<InvoiceCreationResult> createInvoices(Collection<InvoiceRequest> requests) {
+        try {
+            return delegate.createInvoices(requests);
+        } finally {
+            for (InvoiceRequest request : requests) {
+                invalidateOrders(request.orderId());
+            }
+        }
+    }
+
+    @Override
+    public Invoice fetchInvoiceById(String invoiceId, InvoiceDirection direction) {
+        String key = invoiceKey(invoiceId, direction);
+        byte[] cached = store.get(key);
+        if (cached != null) {
+            return InvoiceCodec.decodeInvoice(ByteBuffer.wrap(cached));
+        }
+        Invoice invoice = delegate.fetchInvoiceById(invoiceId, direction);
+        if (invoice != null) {
+            store.put(key, InvoiceCodec.toBytes(invoice), ttl(invoice.paid()));
+        }
+        return invoice;
+    }
+
+    @Override
+    public Map<String, Invoice> fetchInvoicesByIds(Collection<String> invoiceIds, InvoiceDirection direction) {
+        Map<String, Invoice> found = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String invoiceId : new LinkedHashSet<>(invoiceIds)) {
+            byte[] cached = store.get(invoiceKey(invoiceId, direction));
+            if (cached != null) {
+                found.put(invoiceId, InvoiceCodec.decodeInvoice(ByteBuffer.wrap(cached)));
+            } else {
+                missing.add(invoiceId);
+            }
+        }
+        Map<String, Invoice> fetched = missing.isEmpty() ? Map.of() : delegate.fetchInvoicesByIds(missing, direction);
+        fetched.forEach((invoiceId, invoice) -> store.put(invoiceKey(invoiceId, direction), InvoiceCodec.toBytes(invoice), ttl(invoice.paid())));
+        Map<String, Invoice> result = new LinkedHashMap<>();
+        for (String invoiceId : invoiceIds) {
+            Invoice invoice = found.containsKey(invoiceId) ? found.get(invoiceId) : fetched.get(invoiceId);
+            if (invoice != null) {
+                result.put(invoiceId, invoice);
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public List<Invoice> fetchInvoicesByOrderId(String orderId, InvoiceDirection direction) {
+        String key = orderKey(orderId, direction);
+        byte[] cached = store.get(key);
+        if (cached != null) {
+            return InvoiceCodec.decodeInvoices(ByteBuffer.wrap(cached));
+        }
+        List<Invoice> invoices = delegate.fetchInvoicesByOrderId(orderId, direction);
+        if (!invoices.isEmpty()) {
+            store.put(key, InvoiceCodec.toBytes(invoices), ttl(invoices.stream().allMatch(Invoice::paid)));
+        }
+        return invoices;
+    }
+
+    /** Drops the cached invoice and the cached invoice lists of its orders, in both directions. */
+    public void invalidate(Invoice invoice) {
+        for (InvoiceDirection direction : InvoiceDirection.values()) {
+            store.invalidate(invoiceKey(invoice.id(), direction));
+            for (String orderId : invoice.orderIds()) {
+                store.invalidate(orderKey(orderId, direction));
+            }
+        }
+    }
+
+    private void invalidateOrders(String orderId) {
+        for (String id : Invoice.parseOrderIds(orderId)) {
+            for (InvoiceDirection direction : InvoiceDirection.values()) {
+                store.invalidate(orderKey(id, direction));
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        store.invalidateAll();
+    }
+
+    /** Listener for an {@link InvoiceChangePoller} that evicts changed invoices, so a payment shows up before the TTL runs out. */
+    public InvoiceChangeListener invalidatingListener() {
+        return (direction, invoices) -> invoices.forEach(this::invalidate);
+    }
+
+    int size() {
+        return store.size();
+    }
+
+    private long ttl(boolean paid) {
+        return paid ? paidTtl : unpaidTtl;
+    }
+
+    private static String invoiceKey(String invoiceId, InvoiceDirection direction) {
+        return "I" + direction.ordinal() + invoiceId;
+    }
+
+    private static String orderKey(String orderId, InvoiceDirection direction) {
+        return "O" + direction.ordinal() + orderId;
+    }
+
+    public static class Builder {
+        private final InvoicingProvider delegate;
+        private int maximumBytes = 64 * 1024 * 1024;
+        private Duration paidTtl = Duration.ofHours(1);
+        private Duration unpaidTtl = Duration.ofMinutes(1);
+        private LongSupplier ticker = System::nanoTime;
+
+        private Builder(InvoicingProvider delegate) {
+            this.delegate = delegate;
+        }
+
+        public Builder maximumBytes(int maximumBytes) { this.maximumBytes = maximumBytes; return this; }
+        public Builder paidTtl(Duration paidTtl) { this.paidTtl = paidTtl; return this; }
+        public Builder unpaidTtl(Duration unpaidTtl) { this.unpaidTtl = unpaidTtl; return this; }
+        Builder ticker(LongSupplier ticker) { this.ticker = ticker; return this; }
+
+        public OffHeapCachingInvoicingProvider build() {
+            if (maximumBytes < 1024) {
+                throw new IllegalArgumentException("maximumBytes must be at least 1024: " + maximumBytes);
+            }
+            return new OffHeapCachingInvoicingProvider(this);
+        }
+    }
+}
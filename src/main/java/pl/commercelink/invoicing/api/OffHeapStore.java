@@ -0,0 +1,106 @@
+package pl.commercelink.invoicing.api;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Byte values with per-entry expiry, stored in one direct buffer used as a ring: new values are appended at the head
+ * and overwrite the oldest ones, which bounds memory by {@code capacity} bytes and evicts in insertion order.
+ * A value read from the older half of the ring is appended again, so entries that keep being read survive
+ * and eviction approximates LRU. Only the key index lives on the heap.
+ */
+final class OffHeapStore {
+
+    private record Slot(long offset, int length, long expiresAt) {
+    }
+
+    private record Written(String key, long offset) {
+    }
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private final int maxValueBytes;
+    private final LongSupplier ticker;
+    private final Map<String, Slot> index = new HashMap<>();
+    private final ArrayDeque<Written> writeOrder = new ArrayDeque<>();
+    private long head;
+
+    OffHeapStore(int capacity, LongSupplier ticker) {
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+        this.capacity = capacity;
+        this.maxValueBytes = Math.max(1, capacity / 8);
+        this.ticker = ticker;
+    }
+
+    /** Returns a copy of the value, or null if absent, expired or overwritten. */
+    synchronized byte[] get(String key) {
+        Slot slot = index.get(key);
+        if (slot == null) {
+            return null;
+        }
+        if (slot.expiresAt - ticker.getAsLong() <= 0) {
+            index.remove(key);
+            return null;
+        }
+        byte[] value = new byte[slot.length];
+        buffer.get(physical(slot.offset), value);
+        if (slot.offset < head - capacity / 2) {
+            append(key, value, slot.expiresAt);
+        }
+        return value;
+    }
+
+    synchronized void put(String key, byte[] value, long ttlNanos) {
+        if (value.length > maxValueBytes || ttlNanos <= 0) {
+            index.remove(key);
+            return;
+        }
+        append(key, value, ticker.getAsLong() + ttlNanos);
+    }
+
+    synchronized void invalidate(String key) {
+        index.remove(key);
+    }
+
+    synchronized void invalidateAll() {
+        index.clear();
+        writeOrder.clear();
+    }
+
+    synchronized int size() {
+        return index.size();
+    }
+
+    private void append(String key, byte[] value, long expiresAt) {
+        long offset = head;
+        int position = physical(offset);
+        if (position + value.length > capacity) {
+            offset += capacity - position;
+            position = 0;
+        }
+        long end = offset + value.length;
+        evictBefore(end - capacity);
+        buffer.put(position, value);
+        head = end;
+        index.put(key, new Slot(offset, value.length, expiresAt));
+        writeOrder.addLast(new Written(key, offset));
+    }
+
+    /** Drops the entries whose bytes the next write overwrites. */
+    private void evictBefore(long limit) {
+        while (!writeOrder.isEmpty() && writeOrder.peekFirst().offset < limit) {
+            Written written = writeOrder.pollFirst();
+            Slot slot = index.get(written.key);
+            if (slot != null && slot.offset == written.offset) {
+                index.remove(written.key);
+            }
+        }
+    }
+
+    private int physical(long offset) {
+        return (int) (offset % capacity);
+    }
+}
@@ -0,0 +1,84 @@
+package pl.commercelink.invoicing.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Fans a blocking call out over a collection on virtual threads. At most {@code maxConcurrency} calls run at once,
+ * and results come back in input order. The first exception or error thrown by a call stops the remaining calls
+ * and is rethrown to the caller.
+ */
+final class ParallelCalls {
+
+    private ParallelCalls() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T, R> List<R> map(Collection<? extends T> inputs, int maxConcurrency, Function<? super T, ? extends R> call) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        List<T> items = new ArrayList<>(inputs);
+        Object[] results = new Object[items.size()];
+        AtomicInteger next = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Runnable worker = () -> {
+            int i;
+            while (failure.get() == null && (i = next.getAndIncrement()) < results.length) {
+                try {
+                    results[i] = call.apply(items.get(i));
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        };
+
+        int workers = Math.min(maxConcurrency, items.size());
+        if (workers <= 1) {
+            worker.run();
+        } else {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int w = 0; w < workers; w++) {
+                    executor.execute(worker);
+                }
+            }
+        }
+
+        Throwable thrown = failure.get();
+        if (thrown instanceof RuntimeException e) {
+            throw e;
+        }
+        if (thrown instanceof Error e) {
+            throw e;
+        }
+        if (thrown != null) {
+            throw new IllegalStateException(thrown);
+        }
+        return Collections.unmodifiableList(Arrays.asList((R[]) results));
+    }
+
+    /** Like {@link #map}, but keyed by the distinct inputs in input order; null results are left out. */
+    static <K, V> Map<K, V> mapByKey(Collection<? extends K> keys, int maxConcurrency, Function<? super K, ? extends V> call) {
+        List<K> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+        List<V> values = map(distinct, maxConcurrency, call);
+        Map<K, V> result = new LinkedHashMap<>();
+        for (int i = 0; i < distinct.size(); i++) {
+            if (values.get(i) != null) {
+                result.put(distinct.get(i), values.get(i));
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+}
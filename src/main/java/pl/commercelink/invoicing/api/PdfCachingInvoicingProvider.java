@@ -0,0 +1,222 @@
+package pl.commercelink.invoicing.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Keeps invoice PDFs in a local directory, one file per invoice id, named after the SHA-256 of the id. The first
+ * download streams the document from the wrapped provider to disk; repeat downloads are served from the file, and
+ * {@link #transferInvoicePdf} uses {@link FileChannel#transferTo} so the bytes never pass through the heap.
+ * <p>
+ * Once the files in the directory add up to more than {@code maxBytes}, the oldest downloads are deleted until
+ * the cache fits again. A target channel that accepts no bytes, such as a non-blocking socket whose send buffer
+ * is full, fails the transfer with an {@link IOException} rather than being retried forever.
+ */
+public class PdfCachingInvoicingProvider extends ForwardingInvoicingProvider {
+
+    private static final String SUFFIX = ".pdf";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong cachedBytes = new AtomicLong();
+
+    public PdfCachingInvoicingProvider(InvoicingProvider delegate, Path directory) {
+        this(delegate, directory, Long.MAX_VALUE);
+    }
+
+    public PdfCachingInvoicingProvider(InvoicingProvider delegate, Path directory, long maxBytes) {
+        super(delegate);
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        try {
+            this.directory = Files.createDirectories(directory);
+            trim(null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create PDF cache directory " + directory, e);
+        }
+    }
+
+    @Override
+    public byte[] fetchInvoicePdf(String invoiceId) {
+        try (FileChannel channel = openCached(invoiceId)) {
+            return channel != null ? Channels.newInputStream(channel).readAllBytes() : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public long writeInvoicePdf(String invoiceId, OutputStream out) throws IOException {
+        try (FileChannel channel = openCached(invoiceId)) {
+            return channel != null ? Channels.newInputStream(channel).transferTo(out) : -1;
+        }
+    }
+
+    @Override
+    public long transferInvoicePdf(String invoiceId, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = openCached(invoiceId)) {
+            if (channel == null) {
+                return -1;
+            }
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long transferred = channel.transferTo(position, size - position, target);
+                position += transferred > 0 ? transferred : copy(channel, position, target);
+            }
+            return size;
+        }
+    }
+
+    @Override
+    public InputStream openInvoicePdf(String invoiceId) throws IOException {
+        FileChannel channel = openCached(invoiceId);
+        return channel != null ? Channels.newInputStream(channel) : null;
+    }
+
+    public void evict(String invoiceId) throws IOException {
+        Path file = pathOf(invoiceId);
+        try {
+            long size = Files.size(file);
+            if (Files.deleteIfExists(file)) {
+                cachedBytes.addAndGet(-size);
+            }
+        } catch (NoSuchFileException e) {
+            // not cached
+        }
+    }
+
+    /** Total size of the cached files, as last counted; files added or removed by other processes show up after a trim. */
+    public long cachedBytes() {
+        return cachedBytes.get();
+    }
+
+    /**
+     * Opens the cached file, downloading it first if needed. A file trimmed between the two steps is downloaded
+     * again; once open, deleting it no longer affects the reader.
+     */
+    private FileChannel openCached(String invoiceId) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            Path file = cachedFile(invoiceId);
+            if (file == null) {
+                return null;
+            }
+            try {
+                return FileChannel.open(file, StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                if (attempt > 0) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private Path cachedFile(String invoiceId) throws IOException {
+        Path file = pathOf(invoiceId);
+        if (Files.exists(file)) {
+            return file;
+        }
+        Path temp = Files.createTempFile(directory, "download-", ".tmp");
+        try {
+            long written;
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                written = delegate.writeInvoicePdf(invoiceId, out);
+            }
+            if (written < 0) {
+                return null;
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            if (cachedBytes.addAndGet(written) > maxBytes) {
+                trim(file);
+            }
+            return file;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Writes one buffer's worth through {@link WritableByteChannel#write} after {@code transferTo} made no progress,
+     * and fails if the target takes nothing from it either.
+     */
+    private static long copy(FileChannel channel, long position, WritableByteChannel target) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(COPY_BUFFER_SIZE, channel.size() - position));
+        if (channel.read(buffer, position) <= 0) {
+            throw new IOException("Cached PDF shrank while it was being transferred");
+        }
+        int written = target.write(buffer.flip());
+        if (written == 0) {
+            throw new IOException("Target channel accepted no bytes; non-blocking channels are not supported");
+        }
+        return written;
+    }
+
+    /** Recounts the cached files and deletes the oldest until they fit in {@code maxBytes}, sparing {@code keep}. */
+    private synchronized void trim(Path keep) throws IOException {
+        List<CachedFile> files = new ArrayList<>();
+        try (Stream<Path> listing = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) listing::iterator) {
+                if (file.getFileName().toString().endsWith(SUFFIX)) {
+                    try {
+                        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                        files.add(new CachedFile(file, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                    } catch (NoSuchFileException e) {
+                        // evicted meanwhile
+                    }
+                }
+            }
+        }
+        files.sort(Comparator.comparingLong(CachedFile::modified));
+        long total = files.stream().mapToLong(CachedFile::size).sum();
+        for (CachedFile file : files) {
+            if (total <= maxBytes) {
+                break;
+            }
+            if (!file.path().equals(keep)) {
+                try {
+                    Files.deleteIfExists(file.path());
+                    total -= file.size();
+                } catch (IOException e) {
+                    // still open on a platform that cannot delete open files; retried on the next trim
+                }
+            }
+        }
+        cachedBytes.set(total);
+    }
+
+    private Path pathOf(String invoiceId) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(invoiceId.getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(HexFormat.of().formatHex(hash) + SUFFIX);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record CachedFile(Path path, long size, long modified) {
+    }
+}
@@ -0,0 +1,23 @@
+package pl.commercelink.invoicing.api;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of an {@link InvoicePdfExporter} run: {@code entries} maps each exported invoice id to its ZIP entry name
+ * in archive order, invoices without a PDF are listed as missing, failed fetches with their exception.
+ */
+public record PdfExportReport(int exported, long bytes, Map<String, String> entries, List<String> missing,
+                              Map<String, RuntimeException> failures) {
+    public PdfExportReport {
+        entries = Collections.unmodifiableMap(new LinkedHashMap<>(entries));
+        missing = List.copyOf(missing);
+        failures = Map.copyOf(failures);
+    }
+
+    public boolean isComplete() {
+        return missing.isEmpty() && failures.isEmpty();
+    }
+}
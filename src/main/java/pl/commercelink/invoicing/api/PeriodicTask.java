@@ -0,0 +1,50 @@
+package pl.commercelink.invoicing.api;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a task on its own daemon thread with a fixed delay between runs. A run that throws, {@link Error}s included,
+ * does not end the schedule; the throwable is kept until the next run completes and is available from
+ * {@link #lastFailure()}.
+ */
+final class PeriodicTask implements AutoCloseable {
+
+    private final Runnable task;
+    private final ScheduledExecutorService scheduler;
+    private volatile Throwable lastFailure;
+
+    PeriodicTask(String threadName, Runnable task) {
+        this.task = task;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name(threadName).factory());
+    }
+
+    void start(Duration interval) {
+        scheduler.scheduleWithFixedDelay(this::runSafely, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    Throwable lastFailure() {
+        return lastFailure;
+    }
+
+    private void runSafely() {
+        try {
+            task.run();
+            lastFailure = null;
+        } catch (Throwable t) {
+            lastFailure = t;
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
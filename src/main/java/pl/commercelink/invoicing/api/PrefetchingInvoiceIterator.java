@@ -0,0 +1,93 @@
+package pl.commercelink.invoicing.api;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Walks the pages of an {@link InvoiceQuery}. While the caller consumes one page, the next is fetched on a virtual
+ * thread, so at most two pages are held in memory however many invoices the query matches.
+ */
+final class PrefetchingInvoiceIterator implements Iterator<Invoice>, AutoCloseable {
+
+    private static final Executor PREFETCH = runnable -> Thread.ofVirtual().name("invoicing-prefetch").start(runnable);
+
+    private final InvoicingProvider provider;
+    private final InvoiceQuery query;
+    private Iterator<Invoice> current = Collections.emptyIterator();
+    private CompletableFuture<InvoicePage> next;
+    private boolean started;
+    private boolean closed;
+
+    PrefetchingInvoiceIterator(InvoicingProvider provider, InvoiceQuery query) {
+        this.provider = provider;
+        this.query = query;
+    }
+
+    static Stream<Invoice> stream(InvoicingProvider provider, InvoiceQuery query) {
+        PrefetchingInvoiceIterator iterator = new PrefetchingInvoiceIterator(provider, query);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (closed) {
+                return false;
+            }
+            InvoicePage page;
+            if (!started) {
+                started = true;
+                page = provider.fetchInvoicePage(query, null);
+            } else if (next != null) {
+                page = await(next);
+            } else {
+                return false;
+            }
+            next = page.hasNext() ? prefetch(page.nextPageToken()) : null;
+            current = page.invoices().iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public Invoice next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        current = Collections.emptyIterator();
+        if (next != null) {
+            next.cancel(false);
+            next = null;
+        }
+    }
+
+    private CompletableFuture<InvoicePage> prefetch(String pageToken) {
+        return CompletableFuture.supplyAsync(() -> provider.fetchInvoicePage(query, pageToken), PREFETCH);
+    }
+
+    private static InvoicePage await(CompletableFuture<InvoicePage> page) {
+        try {
+            return page.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
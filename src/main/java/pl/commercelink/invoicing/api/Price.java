@@ -65,7 +65,7 @@ public class Price {
         this.currency = DEFAULT_CURRENCY;
     }
 
-    private Price(BigDecimal netValue, BigDecimal grossValue, BigDecimal vatRate, String currency) {
+    Price(BigDecimal netValue, BigDecimal grossValue, BigDecimal vatRate, String currency) {
         this.netValue = netValue;
         this.grossValue = grossValue;
         this.vatRate = vatRate;
@@ -109,6 +109,18 @@ public class Price {
         return currency;
     }
 
+    BigDecimal netDecimal() {
+        return netValue;
+    }
+
+    BigDecimal grossDecimal() {
+        return grossValue;
+    }
+
+    BigDecimal vatRateDecimal() {
+        return vatRate;
+    }
+
     @Override
     public String toString() {
         return "Price{" +
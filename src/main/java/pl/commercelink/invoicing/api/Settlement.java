@@ -0,0 +1,34 @@
+package pl.commercelink.invoicing.api;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Outcome of settling one order: the advance invoices found, their gross sum, the gross left to pay and the
+ * {@link InvoiceKind#Final} request to submit. {@code leftToPay} is negative when the advances exceed the order total.
+ * An order that could not be settled carries only its {@code failure}.
+ */
+public record Settlement(
+        SettlementOrder order,
+        List<Invoice> advances,
+        BigDecimal advancesGross,
+        BigDecimal leftToPay,
+        InvoiceRequest request,
+        RuntimeException failure
+) {
+    public Settlement {
+        advances = advances != null ? List.copyOf(advances) : List.of();
+    }
+
+    public static Settlement success(SettlementOrder order, List<Invoice> advances, BigDecimal advancesGross, BigDecimal leftToPay, InvoiceRequest request) {
+        return new Settlement(order, advances, advancesGross, leftToPay, request, null);
+    }
+
+    public static Settlement failure(SettlementOrder order, RuntimeException failure) {
+        return new Settlement(order, List.of(), null, null, null, failure);
+    }
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+}
@@ -0,0 +1,12 @@
+package pl.commercelink.invoicing.api;
+
+/** An order to close with a final invoice: {@code total} is the gross value of the whole order. */
+public record SettlementOrder(
+        String orderId,
+        String wmsOrderNo,
+        BillingParty billingParty,
+        Price total,
+        boolean splitPaymentsEnabled,
+        boolean send
+) {
+}
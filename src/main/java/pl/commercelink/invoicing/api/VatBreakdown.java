@@ -0,0 +1,98 @@
+package pl.commercelink.invoicing.api;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collector;
+
+/**
+ * Mutable accumulator of per-currency, per-VAT-rate totals. Amounts are summed as long minor units, so the result
+ * is exact and independent of summation order: partial breakdowns built on different threads and combined with
+ * {@link #merge} give exactly the sequential result. Use the collectors with parallel streams. Not thread-safe;
+ * throws {@link ArithmeticException} if a sum overflows.
+ */
+public final class VatBreakdown {
+
+    private final List<Bucket> buckets = new ArrayList<>(4);
+
+    public static Collector<InvoicePosition, VatBreakdown, VatBreakdown> positionsCollector() {
+        return Collector.of(VatBreakdown::new, VatBreakdown::add, VatBreakdown::merge,
+                Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED);
+    }
+
+    public static Collector<Invoice, VatBreakdown, VatBreakdown> invoicesCollector() {
+        return Collector.of(VatBreakdown::new, VatBreakdown::add, VatBreakdown::merge,
+                Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED);
+    }
+
+    /** Adds the position's total, i.e. its unit price times quantity. */
+    public void add(InvoicePosition position) {
+        add(CompactPrice.of(position.price()), position.qty());
+    }
+
+    public void add(Invoice invoice) {
+        if (invoice.positions() instanceof InvoicePositionColumns columns) {
+            columns.addTo(this);
+            return;
+        }
+        for (InvoicePosition position : invoice.positions()) {
+            add(position);
+        }
+    }
+
+    public void add(CompactPrice price, int quantity) {
+        add(price.currency(), price.vatRatePercent(),
+                Math.multiplyExact(price.netMinorUnits(), quantity),
+                Math.multiplyExact(price.grossMinorUnits(), quantity));
+    }
+
+    void add(String currency, int vatRatePercent, long netMinorUnits, long grossMinorUnits) {
+        Bucket bucket = bucket(currency, vatRatePercent);
+        bucket.net = Math.addExact(bucket.net, netMinorUnits);
+        bucket.gross = Math.addExact(bucket.gross, grossMinorUnits);
+    }
+
+    public VatBreakdown merge(VatBreakdown other) {
+        for (Bucket bucket : other.buckets) {
+            add(bucket.currency, bucket.vatRatePercent, bucket.net, bucket.gross);
+        }
+        return this;
+    }
+
+    /** Returns totals ordered by currency, then by descending VAT rate. */
+    public List<VatTotal> totals() {
+        return buckets.stream()
+                .sorted(Comparator.comparing((Bucket bucket) -> bucket.currency, Comparator.nullsFirst(Comparator.naturalOrder()))
+                        .thenComparing(bucket -> -bucket.vatRatePercent))
+                .map(bucket -> new VatTotal(bucket.currency, bucket.vatRatePercent,
+                        BigDecimal.valueOf(bucket.net, 2),
+                        BigDecimal.valueOf(Math.subtractExact(bucket.gross, bucket.net), 2),
+                        BigDecimal.valueOf(bucket.gross, 2)))
+                .toList();
+    }
+
+    private Bucket bucket(String currency, int vatRatePercent) {
+        for (Bucket bucket : buckets) {
+            if (bucket.vatRatePercent == vatRatePercent && Objects.equals(bucket.currency, currency)) {
+                return bucket;
+            }
+        }
+        Bucket bucket = new Bucket(currency, vatRatePercent);
+        buckets.add(bucket);
+        return bucket;
+    }
+
+    private static final class Bucket {
+        final String currency;
+        final int vatRatePercent;
+        long net;
+        long gross;
+
+        Bucket(String currency, int vatRatePercent) {
+            this.currency = currency;
+            this.vatRatePercent = vatRatePercent;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package pl.commercelink.invoicing.api;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Process-wide table of the VAT rates seen so far. Rates are rounded to basis points (four decimal places) before
+ * they are interned, so arithmetic noise such as {@code 1.2300000000000002} maps to the same entry as {@code 1.23}
+ * and the table stays at the handful of distinct rates seen in practice. Lookups are a linear scan over a
+ * copy-on-write array and never allocate.
+ */
+final class VatRateTable {
+
+    private static final double BASIS_POINTS = 10_000;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+            10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+            1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+
+    private static volatile Rate[] rates = new Rate[0];
+
+    static {
+        rate(Price.DEFAULT_VAT_RATE);
+    }
+
+    private VatRateTable() {
+    }
+
+    static Rate rate(double vatRate) {
+        vatRate = Math.rint(vatRate * BASIS_POINTS) / BASIS_POINTS;
+        long bits = Double.doubleToLongBits(vatRate);
+        for (Rate rate : rates) {
+            if (rate.bits == bits) {
+                return rate;
+            }
+        }
+        return register(vatRate);
+    }
+
+    static Rate rate(BigDecimal vatRate) {
+        return rate(vatRate.doubleValue());
+    }
+
+    static Rate byIndex(int index) {
+        return rates[index];
+    }
+
+    private static synchronized Rate register(double vatRate) {
+        Rate[] current = rates;
+        long bits = Double.doubleToLongBits(vatRate);
+        for (Rate rate : current) {
+            if (rate.bits == bits) {
+                return rate;
+            }
+        }
+        Rate rate = new Rate(current.length, vatRate);
+        Rate[] updated = new Rate[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = rate;
+        rates = updated;
+        return rate;
+    }
+
+    static final class Rate {
+        final int index;
+        final double value;
+        final BigDecimal decimal;
+        final int percent;
+        /** Rate as {@code unscaled / scaleFactor}, i.e. {@code unscaled * 10^-scale}; scaleFactor is 0 when the rate has no exact long form. */
+        final long unscaled;
+        final int scale;
+        final long scaleFactor;
+        private final long bits;
+
+        private Rate(int index, double value) {
+            this.index = index;
+            this.value = value;
+            this.bits = Double.doubleToLongBits(value);
+            this.decimal = BigDecimal.valueOf(value);
+            this.percent = decimal.subtract(BigDecimal.ONE).multiply(BigDecimal.valueOf(100)).setScale(0, RoundingMode.HALF_UP).intValue();
+            boolean exact = decimal.signum() > 0 && decimal.scale() >= 0 && decimal.scale() < POWERS_OF_TEN.length
+                    && decimal.unscaledValue().bitLength() < Long.SIZE;
+            this.unscaled = exact ? decimal.unscaledValue().longValue() : 0;
+            this.scale = exact ? decimal.scale() : 0;
+            this.scaleFactor = exact ? POWERS_OF_TEN[decimal.scale()] : 0;
+        }
+
+        boolean isExact() {
+            return scaleFactor != 0;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package pl.commercelink.invoicing.api;
+
+import java.math.BigDecimal;
+
+/** Net, VAT and gross sums of all amounts in one currency taxed at one VAT rate. */
+public record VatTotal(String currency, int vatRatePercent, BigDecimal net, BigDecimal vat, BigDecimal gross) {
+}
@@ -0,0 +1,234 @@
+package pl.commercelink.invoicing.api;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Adapts a blocking {@link InvoicingProvider}, for example one created from an {@link InvoicingProviderDescriptor},
+ * to {@link AsyncInvoicingProvider}. Every call gets its own virtual thread; calls beyond the concurrency cap
+ * wait on a semaphore, which parks only the virtual thread and never a platform thread. Batch calls are split into
+ * single calls that each take a permit, so a batch cannot run more backend calls than the cap, and the permit of
+ * {@link #openInvoicePdf} is held until the returned stream is closed.
+ */
+public final class VirtualThreadInvoicingProvider implements AsyncInvoicingProvider {
+
+    private final InvoicingProvider delegate;
+    private final Semaphore permits;
+    private final ThreadFactory threads = Thread.ofVirtual().name("invoicing-async-", 0).factory();
+
+    public VirtualThreadInvoicingProvider(InvoicingProvider delegate, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    @Override
+    public CompletableFuture<Invoice> createInvoice(InvoiceRequest request) {
+        return submit(() -> delegate.createInvoice(request));
+    }
+
+    @Override
+    public CompletableFuture<List<InvoiceCreationResult>> createInvoices(Collection<InvoiceRequest> requests) {
+        List<CompletableFuture<InvoiceCreationResult>> results = new ArrayList<>(requests.size());
+        for (InvoiceRequest request : requests) {
+            results.add(submit(() -> delegate.createInvoice(request)).handle((invoice, failure) -> {
+                if (failure == null) {
+                    return InvoiceCreationResult.success(request, invoice);
+                }
+                if (failure instanceof RuntimeException e) {
+                    return InvoiceCreationResult.failure(request, e);
+                }
+                if (failure instanceof Error error) {
+                    throw error;
+                }
+                throw new IllegalStateException(failure);
+            }));
+        }
+        return CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> results.stream().map(CompletableFuture::join).toList());
+    }
+
+    @Override
+    public CompletableFuture<Invoice> fetchInvoiceById(String invoiceId, InvoiceDirection direction) {
+        return submit(() -> delegate.fetchInvoiceById(invoiceId, direction));
+    }
+
+    @Override
+    public CompletableFuture<List<Invoice>> fetchInvoicesByOrderId(String orderId, InvoiceDirection direction) {
+        return submit(() -> delegate.fetchInvoicesByOrderId(orderId, direction));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Invoice>> fetchInvoicesByIds(Collection<String> invoiceIds, InvoiceDirection direction) {
+        return submitByKey(invoiceIds, invoiceId -> () -> delegate.fetchInvoiceById(invoiceId, direction));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, List<Invoice>>> fetchInvoicesByOrderIds(Collection<String> orderIds, InvoiceDirection direction) {
+        return submitByKey(orderIds,
+                orderId -> () -> Objects.requireNonNullElse(delegate.fetchInvoicesByOrderId(orderId, direction), List.of()));
+    }
+
+    @Override
+    public CompletableFuture<InvoicePage> fetchInvoicePage(InvoiceQuery query, String pageToken) {
+        return submit(() -> delegate.fetchInvoicePage(query, pageToken));
+    }
+
+    @Override
+    public CompletableFuture<InvoiceChanges> fetchInvoiceChanges(InvoiceDirection direction, String watermark, int limit) {
+        return submit(() -> delegate.fetchInvoiceChanges(direction, watermark, limit));
+    }
+
+    @Override
+    public CompletableFuture<byte[]> fetchInvoicePdf(String invoiceId) {
+        return submit(() -> delegate.fetchInvoicePdf(invoiceId));
+    }
+
+    @Override
+    public CompletableFuture<Long> writeInvoicePdf(String invoiceId, OutputStream out) {
+        return submit(() -> delegate.writeInvoicePdf(invoiceId, out));
+    }
+
+    @Override
+    public CompletableFuture<Long> transferInvoicePdf(String invoiceId, WritableByteChannel target) {
+        return submit(() -> delegate.transferInvoicePdf(invoiceId, target));
+    }
+
+    @Override
+    public CompletableFuture<InputStream> openInvoicePdf(String invoiceId) {
+        CompletableFuture<InputStream> future = new CompletableFuture<>();
+        threads.newThread(() -> {
+            if (!acquire(future)) {
+                return;
+            }
+            InputStream pdf;
+            try {
+                pdf = delegate.openInvoicePdf(invoiceId);
+            } catch (Throwable t) {
+                permits.release();
+                future.completeExceptionally(t);
+                return;
+            }
+            if (pdf == null) {
+                permits.release();
+                future.complete(null);
+                return;
+            }
+            InputStream stream = new PermitReleasingInputStream(pdf, permits);
+            if (!future.complete(stream)) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    // the future was cancelled, so nobody reads the stream; closing only returns the permit
+                }
+            }
+        }).start();
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<BillingParty> fetchCostCenterById(String costCenterId) {
+        return submit(() -> delegate.fetchCostCenterById(costCenterId));
+    }
+
+    @Override
+    public CompletableFuture<BillingParty> fetchBillingPartyById(String billingPartyId) {
+        return submit(() -> delegate.fetchBillingPartyById(billingPartyId));
+    }
+
+    @Override
+    public CompletableFuture<BillingParty> fetchBillingPartyByShortcut(String billingPartyShortcut) {
+        return submit(() -> delegate.fetchBillingPartyByShortcut(billingPartyShortcut));
+    }
+
+    private <T> CompletableFuture<T> submit(Call<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        threads.newThread(() -> {
+            if (!acquire(future)) {
+                return;
+            }
+            try {
+                future.complete(call.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                permits.release();
+            }
+        }).start();
+        return future;
+    }
+
+    /** Runs one call per distinct key, each under its own permit; null results are left out and any failure fails the map. */
+    private <K, V> CompletableFuture<Map<K, V>> submitByKey(Collection<? extends K> keys, Function<? super K, Call<V>> call) {
+        List<K> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+        List<CompletableFuture<V>> values = new ArrayList<>(distinct.size());
+        for (K key : distinct) {
+            values.add(submit(call.apply(key)));
+        }
+        return CompletableFuture.allOf(values.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            Map<K, V> result = new LinkedHashMap<>();
+            for (int i = 0; i < distinct.size(); i++) {
+                V value = values.get(i).join();
+                if (value != null) {
+                    result.put(distinct.get(i), value);
+                }
+            }
+            return Collections.unmodifiableMap(result);
+        });
+    }
+
+    private boolean acquire(CompletableFuture<?> future) {
+        try {
+            permits.acquire();
+            return true;
+        } catch (InterruptedException e) {
+            future.completeExceptionally(e);
+            return false;
+        }
+    }
+
+    /** Delegate call; may throw the {@link IOException} of the PDF methods, which then completes the future. */
+    @FunctionalInterface
+    private interface Call<T> {
+        T call() throws IOException;
+    }
+
+    private static final class PermitReleasingInputStream extends FilterInputStream {
+        private final Semaphore permits;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        PermitReleasingInputStream(InputStream in, Semaphore permits) {
+            super(in);
+            this.permits = permits;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        }
+    }
+}
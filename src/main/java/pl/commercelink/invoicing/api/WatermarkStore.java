@@ -0,0 +1,29 @@
+package pl.commercelink.invoicing.api;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/** Persists the change-feed watermark of an {@link InvoiceChangePoller}, one per direction. */
+public interface WatermarkStore {
+
+    /** Returns the saved watermark, or null if nothing has been saved yet. */
+    String load(InvoiceDirection direction);
+
+    void save(InvoiceDirection direction, String watermark);
+
+    /** Store that forgets everything on restart, for tests and for consumers that replay the whole feed anyway. */
+    static WatermarkStore inMemory() {
+        Map<InvoiceDirection, String> watermarks = new EnumMap<>(InvoiceDirection.class);
+        return new WatermarkStore() {
+            @Override
+            public synchronized String load(InvoiceDirection direction) {
+                return watermarks.get(direction);
+            }
+
+            @Override
+            public synchronized void save(InvoiceDirection direction, String watermark) {
+                watermarks.put(direction, watermark);
+            }
+        };
+    }
+}
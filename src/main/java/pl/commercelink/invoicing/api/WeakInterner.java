@@ -0,0 +1,77 @@
+package pl.commercelink.invoicing.api;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Concurrent canonicalizing map that holds its values weakly: once nothing else references the canonical instance
+ * it can be collected, and its entry is purged on a later call.
+ */
+final class WeakInterner<T> {
+
+    private final ConcurrentHashMap<Ref<T>, Ref<T>> canonical = new ConcurrentHashMap<>();
+    private final ReferenceQueue<T> collected = new ReferenceQueue<>();
+
+    /** Returns the canonical instance equal to {@code value}, registering {@code value} if there is none. */
+    T intern(T value) {
+        purge();
+        Ref<T> ref = new Ref<>(value, collected);
+        while (true) {
+            Ref<T> existing = canonical.putIfAbsent(ref, ref);
+            if (existing == null) {
+                return value;
+            }
+            T instance = existing.get();
+            if (instance != null) {
+                return instance;
+            }
+            canonical.remove(existing, existing);
+        }
+    }
+
+    /** Returns the canonical instance equal to {@code value}, or null if there is none. */
+    T get(T value) {
+        Ref<T> existing = canonical.get(new Ref<>(value, null));
+        return existing != null ? existing.get() : null;
+    }
+
+    int size() {
+        purge();
+        return canonical.size();
+    }
+
+    private void purge() {
+        Reference<? extends T> ref;
+        while ((ref = collected.poll()) != null) {
+            canonical.remove(ref, ref);
+        }
+    }
+
+    private static final class Ref<T> extends WeakReference<T> {
+        private final int hash;
+
+        Ref(T value, ReferenceQueue<T> queue) {
+            super(value, queue);
+            this.hash = value.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Ref<?> other) || hash != other.hash) {
+                return false;
+            }
+            Object value = get();
+            return value != null && value.equals(other.get());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
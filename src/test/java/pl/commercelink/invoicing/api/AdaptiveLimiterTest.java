@@ -0,0 +1,93 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveLimiterTest {
+
+    @Test
+    void shouldGrowLimitWhileFastAndUtilized() {
+        AdaptiveLimiter limiter = AdaptiveLimiter.builder("test").initialLimit(2).maxLimit(10).build();
+
+        for (int i = 0; i < 100; i++) {
+            long first = limiter.acquire();
+            long second = limiter.acquire();
+            limiter.release(first, true);
+            limiter.release(second, true);
+        }
+
+        assertThat(limiter.limit()).isGreaterThan(2);
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void shouldBackOffOnSlowCalls() {
+        AdaptiveLimiter limiter = AdaptiveLimiter.builder("test")
+                .initialLimit(20)
+                .latencyThreshold(Duration.ZERO)
+                .build();
+
+        for (int i = 0; i < 10; i++) {
+            limiter.release(limiter.acquire() - 1, true);
+        }
+
+        assertThat(limiter.limit()).isLessThan(10);
+    }
+
+    @Test
+    void shouldBackOffOnFastFailures() {
+        AdaptiveLimiter limiter = AdaptiveLimiter.builder("test").initialLimit(20).build();
+
+        for (int i = 0; i < 10; i++) {
+            limiter.release(limiter.acquire(), false);
+        }
+
+        assertThat(limiter.limit()).isLessThan(10);
+    }
+
+    @Test
+    void shouldRejectAfterMaxWait() {
+        AdaptiveLimiter limiter = AdaptiveLimiter.builder("test")
+                .initialLimit(1)
+                .maxWait(Duration.ofMillis(20))
+                .build();
+        limiter.acquire();
+
+        assertThatThrownBy(limiter::acquire)
+                .isInstanceOf(BulkheadRejectedException.class)
+                .hasMessageContaining("no permit");
+    }
+
+    @Test
+    void shouldRejectImmediatelyWhenQueueIsFull() {
+        AdaptiveLimiter limiter = AdaptiveLimiter.builder("test")
+                .initialLimit(1)
+                .maxQueued(0)
+                .build();
+        limiter.acquire();
+
+        assertThatThrownBy(limiter::acquire)
+                .isInstanceOf(BulkheadRejectedException.class)
+                .hasMessageContaining("queued");
+    }
+
+    @Test
+    void shouldHandPermitToQueuedCaller() throws InterruptedException {
+        AdaptiveLimiter limiter = AdaptiveLimiter.builder("test")
+                .initialLimit(1)
+                .maxWait(Duration.ofSeconds(5))
+                .build();
+        long start = limiter.acquire();
+        Thread waiter = Thread.ofVirtual().start(() -> limiter.release(limiter.acquire(), true));
+
+        Thread.sleep(20);
+        limiter.release(start, true);
+        waiter.join();
+
+        assertThat(limiter.inFlight()).isZero();
+    }
+}
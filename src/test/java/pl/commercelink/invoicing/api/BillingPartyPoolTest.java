@@ -0,0 +1,51 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BillingPartyPoolTest {
+
+    private final BillingPartyPool pool = new BillingPartyPool();
+
+    private static BillingParty company(String id) {
+        return BillingParty.company(id, "ACME " + id, "Prosta 1", new String("00-001"), new String("Warszawa"), new String("PL"), "123", null);
+    }
+
+    @Test
+    void shouldReturnSameInstanceForEqualParties() {
+        BillingParty first = pool.intern(company("1"));
+        BillingParty second = pool.intern(company("1"));
+
+        assertThat(second).isSameAs(first);
+        assertThat(pool.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldShareCommonStringsBetweenDifferentParties() {
+        BillingParty first = pool.intern(company("1"));
+        BillingParty second = pool.intern(company("2"));
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.city()).isSameAs(first.city());
+        assertThat(second.country()).isSameAs(first.country());
+        assertThat(second.postalCode()).isSameAs(first.postalCode());
+    }
+
+    @Test
+    void shouldInternInvoiceParties() {
+        Invoice first = new Invoice("1", null, null, null, null, null, 1, false, null, null, company("1"), company("2"));
+        Invoice second = new Invoice("2", null, null, null, null, null, 1, false, null, null, company("1"), company("2"));
+
+        Invoice interned = pool.intern(first);
+
+        assertThat(pool.intern(second).seller()).isSameAs(interned.seller());
+        assertThat(pool.intern(second).buyer()).isSameAs(interned.buyer());
+        assertThat(pool.intern(interned)).isSameAs(interned);
+    }
+
+    @Test
+    void shouldPassNullThrough() {
+        assertThat(pool.intern((BillingParty) null)).isNull();
+    }
+}
@@ -0,0 +1,148 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkheadInvoicingProviderTest {
+
+    private static AdaptiveLimiter limiter(String name, int limit) {
+        return AdaptiveLimiter.builder(name)
+                .initialLimit(limit)
+                .minLimit(limit)
+                .maxLimit(limit)
+                .maxWait(Duration.ofMillis(20))
+                .build();
+    }
+
+    @Test
+    void shouldRejectCallsBeyondLimit() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FakeInvoicingProvider backend = new FakeInvoicingProvider() {
+            @Override
+            public Invoice fetchInvoiceById(String invoiceId, InvoiceDirection direction) {
+                entered.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }
+        };
+        BulkheadInvoicingProvider provider = new BulkheadInvoicingProvider(backend,
+                limiter("create", 1), limiter("read", 1), limiter("pdf", 1));
+
+        Thread holder = Thread.ofVirtual().start(() -> provider.fetchInvoiceById("inv-1", InvoiceDirection.Sale));
+        entered.await(5, TimeUnit.SECONDS);
+
+        assertThatThrownBy(() -> provider.fetchInvoiceById("inv-2", InvoiceDirection.Sale))
+                .isInstanceOf(BulkheadRejectedException.class);
+        assertThat(provider.fetchInvoicePdf("inv-1")).isNull();
+
+        release.countDown();
+        holder.join();
+        assertThat(provider.readLimiter().inFlight()).isZero();
+    }
+
+    @Test
+    void shouldReleasePermitWhenCallThrows() {
+        BulkheadInvoicingProvider provider = new BulkheadInvoicingProvider(new FakeInvoicingProvider(),
+                limiter("create", 1), limiter("read", 1), limiter("pdf", 1));
+
+        assertThatThrownBy(() -> provider.createInvoice(InvoiceRequest.finalInvoice().build()))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(provider.createLimiter().inFlight()).isZero();
+        assertThat(provider.createInvoice(InvoiceRequest.finalInvoice().orderId("order-1").build())).isNotNull();
+    }
+
+    @Test
+    void shouldLowerLimitOnBurstOfImmediateFailures() {
+        FakeInvoicingProvider backend = new FakeInvoicingProvider() {
+            @Override
+            public Invoice fetchInvoiceById(String invoiceId, InvoiceDirection direction) {
+                throw new IllegalStateException("503 Service Unavailable");
+            }
+        };
+        AdaptiveLimiter reads = AdaptiveLimiter.builder("read").initialLimit(20).build();
+        BulkheadInvoicingProvider provider = new BulkheadInvoicingProvider(backend, limiter("create", 1), reads, limiter("pdf", 1));
+
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> provider.fetchInvoiceById("inv-1", InvoiceDirection.Sale)).isInstanceOf(IllegalStateException.class);
+        }
+
+        assertThat(reads.limit()).isLessThan(10);
+        assertThat(reads.inFlight()).isZero();
+    }
+
+    @Test
+    void shouldTakeOnePermitPerRequestInBatch() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        FakeInvoicingProvider backend = new FakeInvoicingProvider() {
+            @Override
+            public Invoice createInvoice(InvoiceRequest request) {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                    return super.createInvoice(request);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+        };
+        AdaptiveLimiter creates = AdaptiveLimiter.builder("create")
+                .initialLimit(2)
+                .minLimit(1)
+                .maxLimit(2)
+                .latencyThreshold(Duration.ofSeconds(1))
+                .maxWait(Duration.ofSeconds(5))
+                .build();
+        BulkheadInvoicingProvider provider = new BulkheadInvoicingProvider(backend, creates, limiter("read", 1), limiter("pdf", 1));
+        List<InvoiceRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            requests.add(InvoiceRequest.finalInvoice().orderId("order-" + i).build());
+        }
+
+        List<InvoiceCreationResult> results = provider.createInvoices(requests);
+
+        assertThat(results).allMatch(InvoiceCreationResult::isSuccess);
+        assertThat(maxInFlight.get()).isEqualTo(2);
+        assertThat(creates.limit()).isEqualTo(2);
+        assertThat(creates.inFlight()).isZero();
+    }
+
+    @Test
+    void shouldHoldPdfPermitUntilStreamIsClosed() throws Exception {
+        FakeInvoicingProvider backend = new FakeInvoicingProvider();
+        backend.invoices.put("inv-1", FakeInvoicingProvider.invoice("inv-1", "order-1", true));
+        BulkheadInvoicingProvider provider = new BulkheadInvoicingProvider(backend,
+                limiter("create", 1), limiter("read", 1), limiter("pdf", 1));
+
+        InputStream pdf = provider.openInvoicePdf("inv-1");
+        assertThat(provider.pdfLimiter().inFlight()).isEqualTo(1);
+        assertThatThrownBy(() -> provider.fetchInvoicePdf("inv-1")).isInstanceOf(BulkheadRejectedException.class);
+
+        assertThat(pdf.readAllBytes()).isEqualTo("%PDF inv-1".getBytes());
+        pdf.close();
+        pdf.close();
+
+        assertThat(provider.pdfLimiter().inFlight()).isZero();
+        assertThat(provider.openInvoicePdf("missing")).isNull();
+        assertThat(provider.pdfLimiter().inFlight()).isZero();
+    }
+}
@@ -0,0 +1,122 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingInvoicingProviderTest {
+
+    private final FakeInvoicingProvider backend = new FakeInvoicingProvider();
+    private final AtomicLong now = new AtomicLong();
+    private final CachingInvoicingProvider provider = CachingInvoicingProvider.builder(backend)
+            .maximumSize(2)
+            .ttl(Duration.ofSeconds(60))
+            .negativeTtl(Duration.ofSeconds(5))
+            .ticker(now::get)
+            .build();
+
+    private static BillingParty party(String id, String shortcut) {
+        return BillingParty.company(id, "ACME " + id, "Street 1", "00-001", "Warsaw", "PL", "123", shortcut);
+    }
+
+    @Test
+    void shouldServeRepeatedLookupsFromCache() {
+        backend.parties.put("1", party("1", "acme"));
+
+        assertThat(provider.fetchBillingPartyById("1")).isEqualTo(party("1", "acme"));
+        assertThat(provider.fetchBillingPartyById("1")).isEqualTo(party("1", "acme"));
+
+        assertThat(backend.calls).hasValue(1);
+    }
+
+    @Test
+    void shouldFillByIdEntryWhenLookingUpByShortcut() {
+        backend.parties.put("1", party("1", "acme"));
+
+        provider.fetchBillingPartyByShortcut("acme");
+        provider.fetchBillingPartyById("1");
+        provider.fetchBillingPartyByShortcut("acme");
+
+        assertThat(backend.calls).hasValue(1);
+    }
+
+    @Test
+    void shouldCacheMissesForNegativeTtl() {
+        assertThat(provider.fetchCostCenterById("missing")).isNull();
+        assertThat(provider.fetchCostCenterById("missing")).isNull();
+        assertThat(backend.calls).hasValue(1);
+
+        now.addAndGet(Duration.ofSeconds(6).toNanos());
+        provider.fetchCostCenterById("missing");
+        assertThat(backend.calls).hasValue(2);
+    }
+
+    @Test
+    void shouldExpireEntriesAfterTtl() {
+        backend.parties.put("1", party("1", "acme"));
+        provider.fetchBillingPartyById("1");
+
+        now.addAndGet(Duration.ofSeconds(61).toNanos());
+        provider.fetchBillingPartyById("1");
+
+        assertThat(backend.calls).hasValue(2);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntries() {
+        backend.parties.put("1", party("1", null));
+        backend.parties.put("2", party("2", null));
+        backend.parties.put("3", party("3", null));
+
+        provider.fetchBillingPartyById("1");
+        provider.fetchBillingPartyById("2");
+        provider.fetchBillingPartyById("1");
+        provider.fetchBillingPartyById("3");
+        provider.fetchBillingPartyById("1");
+        provider.fetchBillingPartyById("2");
+
+        assertThat(backend.calls).hasValue(4);
+    }
+
+    @Test
+    void shouldRefetchAfterInvalidation() {
+        backend.parties.put("1", party("1", "acme"));
+        provider.fetchBillingPartyById("1");
+
+        backend.parties.put("1", party("1", "acme-renamed"));
+        provider.invalidateBillingParty("1");
+
+        assertThat(provider.fetchBillingPartyById("1").shortcut()).isEqualTo("acme-renamed");
+    }
+
+    @Test
+    void shouldNotResolveOldShortcutAfterShortcutChange() {
+        backend.parties.put("1", party("1", "acme"));
+        provider.fetchBillingPartyByShortcut("acme");
+
+        backend.parties.put("1", party("1", "acme-renamed"));
+        provider.invalidateBillingParty("1");
+        provider.fetchBillingPartyById("1");
+
+        assertThat(provider.fetchBillingPartyByShortcut("acme")).isNull();
+        assertThat(provider.fetchBillingPartyByShortcut("acme-renamed").id()).isEqualTo("1");
+    }
+
+    @Test
+    void shouldNotServeRefreshedPartyUnderStaleShortcut() {
+        backend.parties.put("1", party("1", "acme"));
+        backend.parties.put("2", party("2", null));
+        backend.parties.put("3", party("3", null));
+        provider.fetchBillingPartyByShortcut("acme");
+        provider.fetchBillingPartyById("2");
+        provider.fetchBillingPartyById("3");
+
+        backend.parties.put("1", party("1", "acme-renamed"));
+        provider.fetchBillingPartyById("1");
+
+        assertThat(provider.fetchBillingPartyByShortcut("acme")).isNull();
+    }
+}
@@ -0,0 +1,93 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CoalescingInvoicingProviderTest {
+
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final FakeInvoicingProvider backend = new FakeInvoicingProvider() {
+        @Override
+        public Invoice fetchInvoiceById(String invoiceId, InvoiceDirection direction) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            if (invoiceId.equals("broken")) {
+                calls.incrementAndGet();
+                throw new IllegalStateException("backend down");
+            }
+            return super.fetchInvoiceById(invoiceId, direction);
+        }
+    };
+    private final CoalescingInvoicingProvider provider = new CoalescingInvoicingProvider(backend);
+
+    private List<CompletableFuture<Invoice>> concurrentFetches(String invoiceId, int callers) throws InterruptedException {
+        List<CompletableFuture<Invoice>> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            CompletableFuture<Invoice> result = new CompletableFuture<>();
+            results.add(result);
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    result.complete(provider.fetchInvoiceById(invoiceId, InvoiceDirection.Sale));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }));
+            if (i == 0) {
+                entered.await();
+            }
+        }
+        for (Thread thread : threads.subList(1, threads.size())) {
+            while (thread.getState() != Thread.State.WAITING) {
+                Thread.onSpinWait();
+            }
+        }
+        release.countDown();
+        return results;
+    }
+
+    @Test
+    void shouldShareOneBackendCallBetweenConcurrentCallers() throws InterruptedException {
+        backend.invoices.put("inv-1", FakeInvoicingProvider.invoice("inv-1", "order-1", false));
+
+        List<CompletableFuture<Invoice>> results = concurrentFetches("inv-1", 10);
+
+        for (CompletableFuture<Invoice> result : results) {
+            assertThat(result.join().id()).isEqualTo("inv-1");
+        }
+        assertThat(backend.calls).hasValue(1);
+    }
+
+    @Test
+    void shouldShareExceptions() throws InterruptedException {
+        List<CompletableFuture<Invoice>> results = concurrentFetches("broken", 5);
+
+        for (CompletableFuture<Invoice> result : results) {
+            assertThatThrownBy(result::join).hasCauseInstanceOf(IllegalStateException.class);
+        }
+        assertThat(backend.calls).hasValue(1);
+    }
+
+    @Test
+    void shouldNotCacheCompletedCalls() {
+        release.countDown();
+        backend.invoices.put("inv-1", FakeInvoicingProvider.invoice("inv-1", "order-1", false));
+
+        provider.fetchInvoiceById("inv-1", InvoiceDirection.Sale);
+        provider.fetchInvoiceById("inv-1", InvoiceDirection.Sale);
+
+        assertThat(backend.calls).hasValue(2);
+    }
+}
@@ -0,0 +1,118 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static pl.commercelink.invoicing.api.Price.DEFAULT_CURRENCY;
+import static pl.commercelink.invoicing.api.Price.DEFAULT_VAT_RATE;
+
+class CompactPriceTest {
+
+    private static final double[] VAT_RATES = {1.23, 1.08, 1.05, 1.0, 1.19, 1.075};
+
+    @Nested
+    class FromPriceNet {
+
+        @Test
+        void shouldCalculateGrossFromNet() {
+            CompactPrice price = CompactPrice.fromNet(100);
+            assertThat(price.netMinorUnits()).isEqualTo(10000);
+            assertThat(price.grossMinorUnits()).isEqualTo(12300);
+            assertThat(price.vatRate()).isEqualTo(DEFAULT_VAT_RATE);
+            assertThat(price.currency()).isEqualTo(DEFAULT_CURRENCY);
+        }
+
+        @Test
+        void shouldRoundLikePrice() {
+            assertThat(CompactPrice.fromNet(1652.85).grossValue()).isEqualTo(2033.01);
+            assertThat(CompactPrice.fromNet(10.555).netValue()).isEqualTo(10.56);
+            assertThat(CompactPrice.fromNet(0.285).netValue()).isEqualTo(0.29);
+            assertThat(CompactPrice.fromNet(-0.285).netValue()).isEqualTo(-0.29);
+        }
+
+        @Test
+        void shouldMatchPriceForRandomValues() {
+            Random random = new Random(42);
+            for (int i = 0; i < 100_000; i++) {
+                double net = Math.round(random.nextDouble() * 1_000_000) / 1000.0;
+                double vat = VAT_RATES[random.nextInt(VAT_RATES.length)];
+                assertThat(CompactPrice.fromNet(net, vat).toPrice()).isEqualTo(Price.fromNet(net, vat));
+            }
+        }
+    }
+
+    @Nested
+    class FromPriceGross {
+
+        @Test
+        void shouldCalculateNetFromGross() {
+            assertThat(CompactPrice.fromGross(1823.44).netValue()).isEqualTo(1482.47);
+            assertThat(CompactPrice.fromGross(4847.33).netValue()).isEqualTo(3940.92);
+            assertThat(CompactPrice.fromGross(108, 1.08).netValue()).isEqualTo(100.0);
+        }
+
+        @Test
+        void shouldMatchPriceForRandomValues() {
+            Random random = new Random(7);
+            for (int i = 0; i < 100_000; i++) {
+                double gross = Math.round(random.nextDouble() * 1_000_000) / 1000.0;
+                double vat = VAT_RATES[random.nextInt(VAT_RATES.length)];
+                assertThat(CompactPrice.fromGross(gross, vat).toPrice()).isEqualTo(Price.fromGross(gross, vat));
+            }
+        }
+    }
+
+    @Nested
+    class Times {
+
+        @Test
+        void shouldMatchPrice() {
+            Price unit = new Price(10.11, 12.44);
+            assertThat(CompactPrice.of(unit).times(7).toPrice()).isEqualTo(unit.times(7));
+        }
+
+        @Test
+        void shouldFailOnOverflow() {
+            CompactPrice price = CompactPrice.ofMinorUnits(Long.MAX_VALUE / 2, Long.MAX_VALUE / 2, DEFAULT_VAT_RATE, DEFAULT_CURRENCY);
+            assertThatThrownBy(() -> price.times(3)).isInstanceOf(ArithmeticException.class);
+        }
+    }
+
+    @Nested
+    class Conversion {
+
+        @Test
+        void shouldRoundTripThroughPrice() {
+            Price price = new Price(100, 119, "EUR");
+            assertThat(CompactPrice.of(price).toPrice()).isEqualTo(price);
+        }
+
+        @Test
+        void shouldKeepVatRatePercent() {
+            assertThat(CompactPrice.of(Price.fromNet(100, 1.08)).vatRatePercent()).isEqualTo(8);
+            assertThat(CompactPrice.fromNet(100, 1.0).vatRatePercent()).isEqualTo(0);
+        }
+
+        @Test
+        void shouldInternVatRatesAtBasisPointPrecision() {
+            CompactPrice price = CompactPrice.fromNet(100, 1.23);
+
+            assertThat(CompactPrice.fromNet(100, 0.23 + 1.0000000000000002).rate()).isSameAs(price.rate());
+            assertThat(CompactPrice.fromNet(100, 1.230049).rate()).isSameAs(price.rate());
+            assertThat(CompactPrice.fromNet(100, 1.2301).rate()).isNotSameAs(price.rate());
+            assertThat(price.rate().decimal).isEqualByComparingTo("1.23");
+        }
+
+        @Test
+        void shouldBeEqualForSameValues() {
+            CompactPrice a = CompactPrice.fromNet(100);
+            CompactPrice b = CompactPrice.of(Price.fromNet(100));
+            assertThat(a).isEqualTo(b);
+            assertThat(a.hashCode()).isEqualTo(b.hashCode());
+        }
+    }
+}
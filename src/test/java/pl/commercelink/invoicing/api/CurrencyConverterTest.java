@@ -0,0 +1,139 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CurrencyConverterTest {
+
+    private static final LocalDate MARCH_1 = LocalDate.of(2024, 3, 1);
+
+    private static ExchangeRateTable table() {
+        return ExchangeRateTable.builder()
+                .rate("EUR", MARCH_1, new BigDecimal("4.3215"))
+                .rate("EUR", MARCH_1.plusDays(3), new BigDecimal("4.3100"))
+                .rate("USD", MARCH_1, new BigDecimal("3.9876"))
+                .build();
+    }
+
+    private static Invoice invoice(String id, Price amount, double exchangeRate) {
+        return new Invoice(id, null, null, amount, null, amount.currency(), exchangeRate, false, null, List.of(), null, null);
+    }
+
+    @Nested
+    class Table {
+
+        @Test
+        void shouldUseLatestRateOnOrBeforeDate() {
+            ExchangeRateTable table = table();
+
+            assertThat(table.rate("EUR", MARCH_1.plusDays(2))).isEqualByComparingTo("4.3215");
+            assertThat(table.rate("EUR", MARCH_1.plusDays(3))).isEqualByComparingTo("4.3100");
+            assertThat(table.rate("EUR", MARCH_1.plusYears(1))).isEqualByComparingTo("4.3100");
+            assertThat(table.rate("EUR", MARCH_1.minusDays(1))).isNull();
+            assertThat(table.rate("PLN", MARCH_1.minusYears(10))).isEqualByComparingTo("1");
+        }
+
+        @Test
+        void shouldLoadCsvFile(@TempDir Path directory) throws IOException {
+            Path file = Files.writeString(directory.resolve("rates.csv"), """
+                    date,currency,rate
+                    # NBP table A
+                    2024-03-01,EUR,4.3215
+
+                    2024-03-01,USD,3.9876
+                    """);
+
+            ExchangeRateTable table = new CsvExchangeRateSource(file).load();
+
+            assertThat(table.currencies()).containsExactlyInAnyOrder("EUR", "USD");
+            assertThat(table.rate("USD", MARCH_1)).isEqualByComparingTo("3.9876");
+        }
+
+        @Test
+        void shouldReportMalformedLine(@TempDir Path directory) throws IOException {
+            Path file = Files.writeString(directory.resolve("rates.csv"), "2024-03-01,EUR\n");
+
+            assertThatThrownBy(() -> new CsvExchangeRateSource(file).load())
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining(":1:");
+        }
+    }
+
+    @Nested
+    class Convert {
+
+        @Test
+        void shouldConvertToDefaultCurrencyWithHalfUpRounding() {
+            CurrencyConverter converter = new CurrencyConverter(CurrencyConverterTest::table);
+
+            Price converted = converter.toDefaultCurrency(new Price(100.05, 123.06, "EUR"), MARCH_1);
+
+            assertThat(converted.currency()).isEqualTo("PLN");
+            assertThat(converted.netValue()).isEqualTo(432.37);
+            assertThat(converted.grossValue()).isEqualTo(531.80);
+        }
+
+        @Test
+        void shouldConvertBetweenForeignCurrenciesWithCrossRate() {
+            CurrencyConverter converter = new CurrencyConverter(CurrencyConverterTest::table);
+
+            List<Price> converted = converter.convert(List.of(new Price(100, 123, "EUR"), new Price(10, 10, "USD")), "USD", MARCH_1);
+
+            assertThat(converted.get(0).netValue()).isEqualTo(108.37);
+            assertThat(converted.get(1)).isEqualTo(new Price(10, 10, "USD"));
+        }
+
+        @Test
+        void shouldFailWithoutRate() {
+            CurrencyConverter converter = new CurrencyConverter(ExchangeRateTable::empty);
+
+            assertThatThrownBy(() -> converter.toDefaultCurrency(new Price(1, 1, "EUR"), MARCH_1))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("EUR");
+        }
+
+        @Test
+        void shouldConvertInvoiceAmountsWithTheirOwnRate() {
+            CurrencyConverter converter = new CurrencyConverter(CurrencyConverterTest::table);
+            Invoice booked = invoice("inv-1", new Price(100, 123, "EUR"), 4.5);
+            Invoice unbooked = invoice("inv-2", new Price(100, 123, "EUR"), 0);
+
+            List<Price> converted = converter.convertAmounts(List.of(booked, unbooked), "PLN", MARCH_1);
+
+            assertThat(converted.get(0).netValue()).isEqualTo(450.00);
+            assertThat(converted.get(1).netValue()).isEqualTo(432.15);
+        }
+
+        @Test
+        void shouldNameInvoiceWithAmountWithoutCurrency() {
+            CurrencyConverter converter = new CurrencyConverter(CurrencyConverterTest::table);
+            Invoice invoice = invoice("inv-1", new Price(100, 123, null), 0);
+
+            assertThatThrownBy(() -> converter.convertAmounts(List.of(invoice), "PLN", MARCH_1))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("inv-1");
+        }
+
+        @Test
+        void shouldUseNewRatesAfterRefresh() {
+            ExchangeRateTable[] current = {ExchangeRateTable.empty()};
+            CurrencyConverter converter = new CurrencyConverter(() -> current[0]);
+
+            current[0] = table();
+            converter.refresh();
+
+            assertThat(converter.toDefaultCurrency(new Price(1, 1, "EUR"), MARCH_1).netValue()).isEqualTo(4.32);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package pl.commercelink.invoicing.api;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class FakeInvoicingProvider implements InvoicingProvider {
+
+    final Map<String, Invoice> invoices = new ConcurrentHashMap<>();
+    final Map<String, BillingParty> parties = new ConcurrentHashMap<>();
+    final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    @Override
+    public Invoice createInvoice(InvoiceRequest request) {
+        calls.incrementAndGet();
+        if (request.orderId() == null) {
+            throw new IllegalArgumentException("orderId is required");
+        }
+        Invoice invoice = invoice("inv-" + sequence.incrementAndGet(), request.orderId(), false);
+        invoices.put(invoice.id(), invoice);
+        return invoice;
+    }
+
+    @Override
+    public Invoice fetchInvoiceById(String invoiceId, InvoiceDirection direction) {
+        calls.incrementAndGet();
+        return invoices.get(invoiceId);
+    }
+
+    @Override
+    public List<Invoice> fetchInvoicesByOrderId(String orderId, InvoiceDirection direction) {
+        calls.incrementAndGet();
+        return invoices.values().stream().filter(invoice -> invoice.hasOrderId(orderId)).toList();
+    }
+
+    @Override
+    public byte[] fetchInvoicePdf(String invoiceId) {
+        calls.incrementAndGet();
+        return invoices.containsKey(invoiceId) ? ("%PDF " + invoiceId).getBytes() : null;
+    }
+
+    @Override
+    public BillingParty fetchCostCenterById(String costCenterId) {
+        calls.incrementAndGet();
+        return parties.get(costCenterId);
+    }
+
+    @Override
+    public BillingParty fetchBillingPartyById(String billingPartyId) {
+        calls.incrementAndGet();
+        return parties.get(billingPartyId);
+    }
+
+    @Override
+    public BillingParty fetchBillingPartyByShortcut(String billingPartyShortcut) {
+        calls.incrementAndGet();
+        return parties.values().stream().filter(party -> billingPartyShortcut.equals(party.shortcut())).findFirst().orElse(null);
+    }
+
+    static Invoice invoice(String id, String orderId, boolean paid) {
+        return new Invoice(id, "FV/" + id, orderId, Price.fromNet(100), null, "PLN", 1.0, paid, null,
+                List.of(new InvoicePosition("p1", "Item", 1, Price.fromNet(100))), null, null);
+    }
+}
@@ -0,0 +1,109 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FinalInvoiceSettlementTest {
+
+    private static Invoice invoice(String id, String number, String orderId, Price amount) {
+        return new Invoice(id, number, orderId, amount, null, "PLN", 1.0, true, null, List.of(), null, null);
+    }
+
+    private static boolean isAdvance(Invoice invoice) {
+        return invoice.number().startsWith("FZAL/");
+    }
+
+    private static boolean isFinal(Invoice invoice) {
+        return invoice.number().startsWith("FKON/");
+    }
+
+    private static SettlementOrder order(String orderId, double totalGross) {
+        return new SettlementOrder(orderId, "WMS-" + orderId, null, Price.fromGross(totalGross), false, true);
+    }
+
+    @Test
+    void shouldSubtractAdvancesExactlyAndBuildFinalRequests() {
+        FakeInvoicingProvider provider = new FakeInvoicingProvider();
+        provider.invoices.put("1", invoice("1", "FZAL/1", "order-1", Price.fromGross(0.1)));
+        provider.invoices.put("2", invoice("2", "FZAL/2", "order-1", Price.fromGross(0.2)));
+        provider.invoices.put("3", invoice("3", "FV/3", "order-1", Price.fromGross(50)));
+        FinalInvoiceSettlement settlement = new FinalInvoiceSettlement(provider, FinalInvoiceSettlementTest::isAdvance, FinalInvoiceSettlementTest::isFinal);
+
+        List<Settlement> settlements = settlement.settle(List.of(order("order-1", 100.3), order("order-2", 10)));
+
+        Settlement first = settlements.get(0);
+        assertThat(first.advancesGross()).isEqualByComparingTo("0.30");
+        assertThat(first.leftToPay()).isEqualByComparingTo("100.00");
+        assertThat(first.request().invoiceKind()).isEqualTo(InvoiceKind.Final);
+        assertThat(first.request().leftToPay()).isEqualTo(100.0);
+        assertThat(first.request().invoiceNumbers()).containsExactlyInAnyOrder("FZAL/1", "FZAL/2");
+        assertThat(first.request().wmsOrderNo()).isEqualTo("WMS-order-1");
+
+        Settlement second = settlements.get(1);
+        assertThat(second.advances()).isEmpty();
+        assertThat(second.leftToPay()).isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    void shouldFailOnlyOrderWithAdvanceInOtherCurrency() {
+        FakeInvoicingProvider provider = new FakeInvoicingProvider();
+        provider.invoices.put("1", invoice("1", "FZAL/1", "order-1", new Price(10, 10, "EUR")));
+        provider.invoices.put("2", invoice("2", "FZAL/2", "order-2", Price.fromGross(10)));
+        FinalInvoiceSettlement settlement = new FinalInvoiceSettlement(provider, invoice -> true, invoice -> false);
+
+        List<Settlement> settlements = settlement.settle(List.of(order("order-1", 100), order("order-2", 100)));
+
+        assertThat(settlements.get(0).isSuccess()).isFalse();
+        assertThat(settlements.get(0).failure()).isInstanceOf(IllegalStateException.class).hasMessageContaining("EUR");
+        assertThat(settlements.get(1).leftToPay()).isEqualByComparingTo("90.00");
+        assertThat(settlement.finalInvoiceRequests(List.of(order("order-1", 100), order("order-2", 100))))
+                .extracting(InvoiceRequest::orderId).containsExactly("order-2");
+    }
+
+    @Test
+    void shouldFailOrdersThatAlreadyHaveFinalInvoice() {
+        FakeInvoicingProvider provider = new FakeInvoicingProvider();
+        provider.invoices.put("1", invoice("1", "FZAL/1", "order-1", Price.fromGross(10)));
+        provider.invoices.put("2", invoice("2", "FKON/2", "order-1", Price.fromGross(90)));
+        FinalInvoiceSettlement settlement = new FinalInvoiceSettlement(provider, FinalInvoiceSettlementTest::isAdvance, FinalInvoiceSettlementTest::isFinal);
+
+        List<Settlement> settlements = settlement.settle(List.of(order("order-1", 100), order("order-2", 10)));
+
+        assertThat(settlements.get(0).failure()).hasMessageContaining("FKON/2");
+        assertThat(settlements.get(1).isSuccess()).isTrue();
+    }
+
+    @Test
+    void shouldSettleRepeatedOrderOnce() {
+        FinalInvoiceSettlement settlement = new FinalInvoiceSettlement(new FakeInvoicingProvider(),
+                FinalInvoiceSettlementTest::isAdvance, FinalInvoiceSettlementTest::isFinal);
+
+        List<InvoiceRequest> requests = settlement.finalInvoiceRequests(List.of(order("order-1", 100), order("order-2", 10), order("order-1", 100)));
+
+        assertThat(requests).extracting(InvoiceRequest::orderId).containsExactly("order-1", "order-2");
+    }
+
+    @Test
+    void shouldFallBackToPerOrderLookupsWhenBulkLookupFails() {
+        FakeInvoicingProvider provider = new FakeInvoicingProvider() {
+            @Override
+            public List<Invoice> fetchInvoicesByOrderId(String orderId, InvoiceDirection direction) {
+                if (orderId.equals("order-2")) {
+                    throw new IllegalStateException("timeout");
+                }
+                return super.fetchInvoicesByOrderId(orderId, direction);
+            }
+        };
+        provider.invoices.put("1", invoice("1", "FZAL/1", "order-1", Price.fromGross(10)));
+        FinalInvoiceSettlement settlement = new FinalInvoiceSettlement(provider, FinalInvoiceSettlementTest::isAdvance, FinalInvoiceSettlementTest::isFinal);
+
+        List<Settlement> settlements = settlement.settle(List.of(order("order-1", 100), order("order-2", 10), order("order-3", 20)));
+
+        assertThat(settlements).extracting(Settlement::isSuccess).containsExactly(true, false, true);
+        assertThat(settlements.get(0).leftToPay()).isEqualByComparingTo("90.00");
+        assertThat(settlements.get(1).failure()).hasMessage("timeout");
+    }
+}
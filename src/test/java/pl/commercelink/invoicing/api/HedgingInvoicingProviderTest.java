@@ -0,0 +1,212 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HedgingInvoicingProviderTest {
+
+    /** Blocks lookups until released. */
+    static class SlowProvider extends FakeInvoicingProvider {
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public Invoice fetchInvoiceById(String invoiceId, InvoiceDirection direction) {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.fetchInvoiceById(invoiceId, direction);
+        }
+    }
+
+    static class FailingProvider extends FakeInvoicingProvider {
+        @Override
+        public List<Invoice> fetchInvoicesByOrderId(String orderId, InvoiceDirection direction) {
+            calls.incrementAndGet();
+            throw new IllegalStateException("backend down");
+        }
+    }
+
+    private static FakeInvoicingProvider withInvoice(FakeInvoicingProvider provider, String id) {
+        provider.invoices.put(id, FakeInvoicingProvider.invoice(id, "order-" + id, false));
+        return provider;
+    }
+
+    @Nested
+    class Hedging {
+
+        @Test
+        void shouldHedgeSlowCallToSecondary() {
+            SlowProvider primary = (SlowProvider) withInvoice(new SlowProvider(), "inv-1");
+            FakeInvoicingProvider secondary = withInvoice(new FakeInvoicingProvider(), "inv-1");
+            HedgingInvoicingProvider provider = HedgingInvoicingProvider.builder()
+                    .provider("primary", primary)
+                    .provider("secondary", secondary)
+                    .minHedgeDelay(Duration.ofMillis(20))
+                    .hedgeBudget(1.0)
+                    .build();
+
+            long start = System.nanoTime();
+            Invoice invoice = provider.fetchInvoiceById("inv-1", InvoiceDirection.Sale);
+            primary.release.countDown();
+
+            assertThat(invoice.id()).isEqualTo("inv-1");
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+            assertThat(provider.hedgeCount()).isEqualTo(1);
+            assertThat(secondary.calls).hasValue(1);
+        }
+
+        @Test
+        void shouldInterruptLosingCall() throws Exception {
+            CountDownLatch interrupted = new CountDownLatch(1);
+            FakeInvoicingProvider primary = new FakeInvoicingProvider() {
+                @Override
+                public Invoice fetchInvoiceById(String invoiceId, InvoiceDirection direction) {
+                    try {
+                        Thread.sleep(Duration.ofSeconds(5));
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                    return null;
+                }
+            };
+            FakeInvoicingProvider secondary = withInvoice(new FakeInvoicingProvider(), "inv-1");
+            HedgingInvoicingProvider provider = HedgingInvoicingProvider.builder()
+                    .provider("primary", primary)
+                    .provider("secondary", secondary)
+                    .minHedgeDelay(Duration.ofMillis(1))
+                    .hedgeBudget(1.0)
+                    .build();
+
+            assertThat(provider.fetchInvoiceById("inv-1", InvoiceDirection.Sale)).isNotNull();
+
+            assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(provider.health().get("primary")).isEqualTo(1.0);
+        }
+
+        @Test
+        void shouldNotHedgeWithoutBudget() {
+            SlowProvider primary = (SlowProvider) withInvoice(new SlowProvider(), "inv-1");
+            FakeInvoicingProvider secondary = withInvoice(new FakeInvoicingProvider(), "inv-1");
+            HedgingInvoicingProvider provider = HedgingInvoicingProvider.builder()
+                    .provider("primary", primary)
+                    .provider("secondary", secondary)
+                    .minHedgeDelay(Duration.ofMillis(1))
+                    .hedgeBudget(0)
+                    .build();
+
+            Thread.ofVirtual().start(() -> {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                primary.release.countDown();
+            });
+
+            assertThat(provider.fetchInvoiceById("inv-1", InvoiceDirection.Sale)).isNotNull();
+            assertThat(provider.hedgeCount()).isZero();
+            assertThat(secondary.calls).hasValue(0);
+        }
+
+        @Test
+        void shouldRethrowErrorsInsteadOfWaitingForever() {
+            FakeInvoicingProvider broken = new FakeInvoicingProvider() {
+                @Override
+                public Invoice fetchInvoiceById(String invoiceId, InvoiceDirection direction) {
+                    throw new AssertionError("boom");
+                }
+            };
+            HedgingInvoicingProvider provider = HedgingInvoicingProvider.builder()
+                    .provider("broken", broken)
+                    .build();
+
+            assertThatThrownBy(() -> provider.fetchInvoiceById("inv-1", InvoiceDirection.Sale))
+                    .isInstanceOf(AssertionError.class)
+                    .hasMessage("boom");
+        }
+    }
+
+    @Nested
+    class Failover {
+
+        @Test
+        void shouldFailOverAndDemoteUnhealthyProvider() {
+            FailingProvider primary = new FailingProvider();
+            FakeInvoicingProvider secondary = withInvoice(new FakeInvoicingProvider(), "inv-1");
+            HedgingInvoicingProvider provider = HedgingInvoicingProvider.builder()
+                    .provider("primary", primary)
+                    .provider("secondary", secondary)
+                    .build();
+
+            for (int i = 0; i < 10; i++) {
+                assertThat(provider.fetchInvoicesByOrderId("order-inv-1", InvoiceDirection.Sale)).hasSize(1);
+            }
+
+            assertThat(primary.calls).hasValue(1);
+            assertThat(provider.health().get("primary")).isLessThan(provider.health().get("secondary"));
+        }
+
+        @Test
+        void shouldRethrowIoExceptionWithOtherFailuresSuppressed() {
+            FakeInvoicingProvider broken = new FakeInvoicingProvider() {
+                @Override
+                public InputStream openInvoicePdf(String invoiceId) throws IOException {
+                    throw new IOException("connection reset");
+                }
+            };
+            FakeInvoicingProvider down = new FakeInvoicingProvider() {
+                @Override
+                public InputStream openInvoicePdf(String invoiceId) {
+                    throw new UncheckedIOException(new IOException("provider's own"));
+                }
+            };
+            HedgingInvoicingProvider provider = HedgingInvoicingProvider.builder()
+                    .provider("broken", broken)
+                    .provider("down", down)
+                    .build();
+
+            assertThatThrownBy(() -> provider.openInvoicePdf("inv-1"))
+                    .isExactlyInstanceOf(IOException.class)
+                    .hasMessage("connection reset")
+                    .satisfies(e -> assertThat(e.getSuppressed()).singleElement().isInstanceOf(UncheckedIOException.class));
+        }
+
+        @Test
+        void shouldNotUnwrapProvidersOwnUncheckedIoException() {
+            FakeInvoicingProvider down = new FakeInvoicingProvider() {
+                @Override
+                public InputStream openInvoicePdf(String invoiceId) {
+                    throw new UncheckedIOException(new IOException("provider's own"));
+                }
+            };
+            HedgingInvoicingProvider provider = HedgingInvoicingProvider.builder().provider("down", down).build();
+
+            assertThatThrownBy(() -> provider.openInvoicePdf("inv-1")).isInstanceOf(UncheckedIOException.class);
+        }
+
+        @Test
+        void shouldThrowWhenAllProvidersFail() {
+            HedgingInvoicingProvider provider = HedgingInvoicingProvider.builder()
+                    .provider("a", new FailingProvider())
+                    .provider("b", new FailingProvider())
+                    .build();
+
+            assertThatThrownBy(() -> provider.fetchInvoicesByOrderId("order-1", InvoiceDirection.Sale))
+                    .isInstanceOf(IllegalStateException.class)
+                    .satisfies(e -> assertThat(e.getSuppressed()).hasSize(1));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HistogramTest {
+
+    @Test
+    void shouldReportPercentilesWithinBucketPrecision() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value * 1_000);
+        }
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+
+        assertThat(snapshot.count()).isEqualTo(10_000);
+        assertThat(snapshot.max()).isEqualTo(10_000_000);
+        assertThat((double) snapshot.percentile(50)).isCloseTo(5_000_000, within(5_000_000 * 0.125));
+        assertThat((double) snapshot.percentile(99)).isCloseTo(9_900_000, within(9_900_000 * 0.125));
+        assertThat(snapshot.percentile(100)).isEqualTo(10_000_000);
+    }
+
+    @Test
+    void shouldKeepSmallValuesExact() {
+        Histogram histogram = new Histogram();
+        for (long value = 0; value < 16; value++) {
+            histogram.record(value);
+        }
+
+        assertThat(histogram.snapshot().percentile(50)).isEqualTo(7);
+        assertThat(histogram.snapshot().mean()).isEqualTo(7.5);
+    }
+
+    @Test
+    void shouldReturnZeroWhenEmpty() {
+        assertThat(new Histogram().snapshot().percentile(99)).isZero();
+    }
+
+    @Test
+    void shouldMapEveryValueToABucketCoveringIt() {
+        for (int bit = 0; bit < 63; bit++) {
+            long value = (1L << bit) + (bit > 2 ? 3L << (bit - 3) : 0);
+            int index = Histogram.indexOf(value);
+            assertThat(Histogram.upperBoundOf(index)).isGreaterThanOrEqualTo(value);
+            assertThat(index == 0 || Histogram.upperBoundOf(index - 1) < value).isTrue();
+        }
+        assertThat(Histogram.upperBoundOf(Histogram.indexOf(Long.MAX_VALUE))).isEqualTo(Long.MAX_VALUE);
+    }
+}
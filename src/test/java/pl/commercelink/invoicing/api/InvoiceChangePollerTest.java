@@ -0,0 +1,135 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InvoiceChangePollerTest {
+
+    /** Change feed over an append-only log; the watermark is the index of the next change. */
+    static class ChangeFeedProvider extends FakeInvoicingProvider {
+        final List<Invoice> log = new ArrayList<>();
+
+        void change(Invoice invoice) {
+            invoices.put(invoice.id(), invoice);
+            log.add(invoice);
+        }
+
+        @Override
+        public InvoiceChanges fetchInvoiceChanges(InvoiceDirection direction, String watermark, int limit) {
+            calls.incrementAndGet();
+            int from = watermark != null ? Integer.parseInt(watermark) : 0;
+            int to = Math.min(log.size(), from + limit);
+            return new InvoiceChanges(log.subList(from, to), String.valueOf(to), to < log.size());
+        }
+    }
+
+    @Nested
+    class Poll {
+
+        @Test
+        void shouldDeliverAllChangesInBatchesAndAdvanceWatermark() {
+            ChangeFeedProvider provider = new ChangeFeedProvider();
+            for (int i = 0; i < 5; i++) {
+                provider.change(FakeInvoicingProvider.invoice("inv-" + i, "order-" + i, false));
+            }
+            WatermarkStore watermarks = WatermarkStore.inMemory();
+            List<Invoice> received = new ArrayList<>();
+            InvoiceChangePoller poller = new InvoiceChangePoller(provider, InvoiceDirection.Sale, watermarks, 2)
+                    .addListener((direction, invoices) -> received.addAll(invoices));
+
+            assertThat(poller.poll()).isEqualTo(5);
+            assertThat(received).extracting(Invoice::id).containsExactly("inv-0", "inv-1", "inv-2", "inv-3", "inv-4");
+            assertThat(watermarks.load(InvoiceDirection.Sale)).isEqualTo("5");
+
+            provider.change(FakeInvoicingProvider.invoice("inv-0", "order-0", true));
+            assertThat(poller.poll()).isEqualTo(1);
+            assertThat(received).last().extracting(Invoice::paid).isEqualTo(true);
+        }
+
+        @Test
+        void shouldRedeliverBatchWhenListenerFails() {
+            ChangeFeedProvider provider = new ChangeFeedProvider();
+            provider.change(FakeInvoicingProvider.invoice("inv-1", "order-1", true));
+            WatermarkStore watermarks = WatermarkStore.inMemory();
+            List<Invoice> received = new ArrayList<>();
+            boolean[] fail = {true};
+            InvoiceChangePoller poller = new InvoiceChangePoller(provider, InvoiceDirection.Sale, watermarks, 10)
+                    .addListener((direction, invoices) -> {
+                        if (fail[0]) {
+                            throw new IllegalStateException("database down");
+                        }
+                        received.addAll(invoices);
+                    });
+
+            assertThatThrownBy(poller::poll).isInstanceOf(IllegalStateException.class);
+            assertThat(watermarks.load(InvoiceDirection.Sale)).isNull();
+
+            fail[0] = false;
+            assertThat(poller.poll()).isEqualTo(1);
+            assertThat(received).extracting(Invoice::id).containsExactly("inv-1");
+        }
+
+        @Test
+        void shouldFailWhenFeedDoesNotAdvance() {
+            ChangeFeedProvider provider = new ChangeFeedProvider() {
+                @Override
+                public InvoiceChanges fetchInvoiceChanges(InvoiceDirection direction, String watermark, int limit) {
+                    calls.incrementAndGet();
+                    return new InvoiceChanges(List.of(), watermark, true);
+                }
+            };
+            InvoiceChangePoller poller = new InvoiceChangePoller(provider, InvoiceDirection.Sale, WatermarkStore.inMemory(), 10);
+
+            assertThatThrownBy(poller::poll).isInstanceOf(IllegalStateException.class);
+            assertThat(provider.calls).hasValue(1);
+        }
+
+        @Test
+        void shouldReportFailedScheduledPolls() {
+            ChangeFeedProvider provider = new ChangeFeedProvider();
+            provider.change(FakeInvoicingProvider.invoice("inv-1", "order-1", true));
+            try (InvoiceChangePoller poller = new InvoiceChangePoller(provider, InvoiceDirection.Sale, WatermarkStore.inMemory(), 10)) {
+                poller.addListener((direction, invoices) -> {
+                    throw new IllegalStateException("database down");
+                });
+                poller.start(Duration.ofHours(1));
+                long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+                while (poller.lastFailure() == null && System.nanoTime() < deadline) {
+                    Thread.onSpinWait();
+                }
+
+                assertThat(poller.lastFailure()).hasMessage("database down");
+            }
+        }
+    }
+
+    @Nested
+    class FileStore {
+
+        @Test
+        void shouldKeepWatermarkPerDirectionAcrossInstances(@TempDir Path directory) {
+            new FileWatermarkStore(directory, "fakturownia").save(InvoiceDirection.Sale, "cursor-42");
+
+            FileWatermarkStore reopened = new FileWatermarkStore(directory, "fakturownia");
+
+            assertThat(reopened.load(InvoiceDirection.Sale)).isEqualTo("cursor-42");
+            assertThat(reopened.load(InvoiceDirection.Purchase)).isNull();
+        }
+
+        @Test
+        void shouldKeepStoresSharingDirectoryApart(@TempDir Path directory) {
+            new FileWatermarkStore(directory, "fakturownia").save(InvoiceDirection.Sale, "cursor-42");
+
+            assertThat(new FileWatermarkStore(directory, "ifirma").load(InvoiceDirection.Sale)).isNull();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InvoiceCodecTest {
+
+    private static final BillingParty SELLER = BillingParty.company("1", "Żółta Łódź Sp. z o.o.", "Prosta 1", "00-001", "Warszawa", "PL", "5260000000", "seller");
+    private static final BillingParty BUYER = BillingParty.individual("2", "Jan", "Kowalski 🚀", "Długa 2", "00-001", "Warszawa", "PL", null);
+
+    private static Invoice invoice(BillingParty buyer, int positionCount) {
+        List<InvoicePosition> positions = new ArrayList<>();
+        for (int i = 0; i < positionCount; i++) {
+            positions.add(new InvoicePosition("p" + i, "Product", i + 1, Price.fromNet(10.01 * (i + 1), i % 2 == 0 ? 1.23 : 1.08)));
+        }
+        return new Invoice("inv-1", "FV/1/2024", "ORD-1, ORD-2", Price.fromGross(-1234.56), "https://example.com/1", "EUR", 4.3123,
+                true, LocalDate.of(2024, 2, 14), positions, SELLER, buyer);
+    }
+
+    @Nested
+    class Invoices {
+
+        @Test
+        void shouldRoundTripInvoice() {
+            Invoice invoice = invoice(BUYER, 3);
+
+            assertThat(InvoiceCodec.decodeInvoice(ByteBuffer.wrap(InvoiceCodec.toBytes(invoice)))).isEqualTo(invoice);
+        }
+
+        @Test
+        void shouldRoundTripNullFields() {
+            Invoice invoice = new Invoice(null, null, null, null, null, null, 0, false, null, null, null, null);
+
+            assertThat(InvoiceCodec.decodeInvoice(ByteBuffer.wrap(InvoiceCodec.toBytes(invoice)))).isEqualTo(invoice);
+        }
+
+        @Test
+        void shouldRoundTripThroughDirectBuffer() {
+            Invoice invoice = invoice(SELLER, 10);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+
+            InvoiceCodec.encode(invoice, buffer);
+            Invoice decoded = InvoiceCodec.decodeInvoice(buffer.flip());
+
+            assertThat(decoded).isEqualTo(invoice);
+            assertThat(decoded.buyer()).isSameAs(decoded.seller());
+            assertThat(buffer.hasRemaining()).isFalse();
+        }
+
+        @Test
+        void shouldShareDictionaryAcrossInvoiceList() {
+            List<Invoice> invoices = List.of(invoice(BUYER, 2), invoice(BUYER, 2), invoice(SELLER, 0));
+
+            byte[] bytes = InvoiceCodec.toBytes(invoices);
+
+            assertThat(InvoiceCodec.decodeInvoices(ByteBuffer.wrap(bytes))).isEqualTo(invoices);
+            assertThat(bytes.length).isLessThan(InvoiceCodec.toBytes(invoices.get(0)).length * 2);
+        }
+
+        @Test
+        void shouldFailWhenBufferIsTooSmall() {
+            assertThatThrownBy(() -> InvoiceCodec.encode(invoice(BUYER, 1), ByteBuffer.allocate(16)))
+                    .isInstanceOf(BufferOverflowException.class);
+        }
+    }
+
+    @Nested
+    class Requests {
+
+        @Test
+        void shouldRoundTripStandardRequest() {
+            InvoiceRequest request = InvoiceRequest.standardInvoice()
+                    .invoiceKind(InvoiceKind.Standard)
+                    .orderId("ORD-1")
+                    .sellDate(LocalDate.of(2024, 1, 31))
+                    .billingParty(BUYER)
+                    .positions(invoice(BUYER, 3).positions())
+                    .paidAmount(12.5)
+                    .description("Zamówienie")
+                    .paymentTerms(14)
+                    .splitPaymentsEnabled(true)
+                    .build();
+
+            assertThat(InvoiceCodec.decodeRequest(ByteBuffer.wrap(InvoiceCodec.toBytes(request)))).isEqualTo(request);
+        }
+
+        @Test
+        void shouldRoundTripFinalRequestWithNullPositions() {
+            InvoiceRequest request = InvoiceRequest.finalInvoice()
+                    .orderId("ORD-1")
+                    .wmsOrderNo("WMS-1")
+                    .billingParty(SELLER)
+                    .leftToPay(99.99)
+                    .invoiceNumbers(List.of("FV/1", "FV/2"))
+                    .send(true)
+                    .build();
+
+            InvoiceRequest decoded = InvoiceCodec.decodeRequest(ByteBuffer.wrap(InvoiceCodec.toBytes(request)));
+
+            assertThat(decoded).isEqualTo(request);
+            assertThat(decoded.positions()).isNull();
+        }
+
+        @Test
+        void shouldRejectCorruptKindCountsAndReferences() {
+            byte[] unknownKind = {InvoiceCodec.VERSION, 2, 100};
+            byte[] hugePositionCount = {InvoiceCodec.VERSION, 2, 1, 0, 0, 0, (byte) 0xFF, (byte) 0xFF, 0x7F};
+            byte[] danglingReference = {InvoiceCodec.VERSION, 2, 1, 5};
+
+            for (byte[] bytes : List.of(unknownKind, hugePositionCount, danglingReference)) {
+                assertThatThrownBy(() -> InvoiceCodec.decodeRequest(ByteBuffer.wrap(bytes)))
+                        .isInstanceOf(IllegalArgumentException.class)
+                        .hasMessageStartingWith("Corrupt")
+                        .hasMessageNotContaining("length");
+            }
+        }
+
+        @Test
+        void shouldRejectTruncatedRequest() {
+            byte[] bytes = InvoiceCodec.toBytes(InvoiceRequest.finalInvoice().orderId("ORD-1").build());
+
+            assertThatThrownBy(() -> InvoiceCodec.decodeRequest(ByteBuffer.wrap(bytes, 0, bytes.length - 3)))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Truncated message");
+        }
+
+        @Test
+        void shouldRejectWrongRecordType() {
+            byte[] bytes = InvoiceCodec.toBytes(invoice(BUYER, 0));
+
+            assertThatThrownBy(() -> InvoiceCodec.decodeRequest(ByteBuffer.wrap(bytes)))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
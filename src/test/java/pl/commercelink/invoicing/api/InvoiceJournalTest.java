@@ -0,0 +1,189 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InvoiceJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private static InvoiceRequest finalInvoice(String orderId) {
+        return InvoiceRequest.finalInvoice().orderId(orderId).leftToPay(100).invoiceNumbers(List.of("FV/1")).build();
+    }
+
+    @Test
+    void shouldDeduplicateByOrderIdAndKind() {
+        try (InvoiceJournal journal = InvoiceJournal.open(directory.resolve("journal"), false)) {
+            String first = journal.submit(finalInvoice("ORD-1"));
+            String second = journal.submit(finalInvoice("ORD-1"));
+            journal.submit(InvoiceRequest.advanceInvoice().orderId("ORD-1").build());
+
+            assertThat(second).isEqualTo(first).isEqualTo("ORD-1/Final");
+            assertThat(journal.pending()).hasSize(2);
+        }
+    }
+
+    @Test
+    void shouldRejectRequestsWithoutOrderId() {
+        try (InvoiceJournal journal = InvoiceJournal.open(directory.resolve("journal"), false)) {
+            assertThatThrownBy(() -> journal.submit(finalInvoice(null))).isInstanceOf(IllegalArgumentException.class);
+            assertThat(journal.pending()).isEmpty();
+        }
+    }
+
+    @Test
+    void shouldDrainPendingEntriesAndRecordInvoiceIds() {
+        FakeInvoicingProvider provider = new FakeInvoicingProvider() {
+            @Override
+            public Invoice createInvoice(InvoiceRequest request) {
+                if (request.orderId().equals("ORD-BAD")) {
+                    throw new IllegalArgumentException("rejected");
+                }
+                return super.createInvoice(request);
+            }
+        };
+        try (InvoiceJournal journal = InvoiceJournal.open(directory.resolve("journal"), false)) {
+            journal.submit(finalInvoice("ORD-1"));
+            journal.submit(finalInvoice("ORD-2"));
+            journal.submit(finalInvoice("ORD-BAD"));
+
+            int issued = new InvoiceJournalDrainer(journal, provider, 2).drain();
+
+            assertThat(issued).isEqualTo(2);
+            assertThat(journal.entry("ORD-1/Final").status()).isEqualTo(InvoiceJournal.Status.Issued);
+            assertThat(journal.entry("ORD-1/Final").invoiceId()).isNotNull();
+            assertThat(journal.failed()).extracting(InvoiceJournal.Entry::key).containsExactly("ORD-BAD/Final");
+            assertThat(journal.pending()).isEmpty();
+        }
+    }
+
+    @Test
+    void shouldKeepTimedOutRequestsUncertain() {
+        FakeInvoicingProvider provider = new FakeInvoicingProvider() {
+            @Override
+            public Invoice createInvoice(InvoiceRequest request) {
+                throw new UncheckedIOException(new SocketTimeoutException("Read timed out"));
+            }
+        };
+        try (InvoiceJournal journal = InvoiceJournal.open(directory.resolve("journal"), false)) {
+            journal.submit(finalInvoice("ORD-1"));
+
+            new InvoiceJournalDrainer(journal, provider, 10).drain();
+
+            assertThat(journal.failed()).isEmpty();
+            assertThat(journal.uncertain()).extracting(InvoiceJournal.Entry::key).containsExactly("ORD-1/Final");
+        }
+    }
+
+    @Test
+    void shouldKeepSchedulingAfterError() {
+        AtomicInteger runs = new AtomicInteger();
+        FakeInvoicingProvider provider = new FakeInvoicingProvider() {
+            @Override
+            public List<InvoiceCreationResult> createInvoices(Collection<InvoiceRequest> requests) {
+                if (runs.incrementAndGet() == 1) {
+                    throw new AssertionError("boom");
+                }
+                return super.createInvoices(requests);
+            }
+        };
+        try (InvoiceJournal journal = InvoiceJournal.open(directory.resolve("journal"), false);
+             InvoiceJournalDrainer drainer = new InvoiceJournalDrainer(journal, provider, 10)) {
+            journal.submit(finalInvoice("ORD-1"));
+            drainer.start(Duration.ofMillis(1));
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (runs.get() == 0 && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+
+            journal.submit(finalInvoice("ORD-2"));
+            while (journal.entry("ORD-2/Final").status() != InvoiceJournal.Status.Issued && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+
+            assertThat(journal.entry("ORD-2/Final").status()).isEqualTo(InvoiceJournal.Status.Issued);
+        }
+    }
+
+    @Test
+    void shouldReportFailedScheduledRuns() {
+        FakeInvoicingProvider provider = new FakeInvoicingProvider() {
+            @Override
+            public List<InvoiceCreationResult> createInvoices(Collection<InvoiceRequest> requests) {
+                throw new IllegalStateException("backend down");
+            }
+        };
+        try (InvoiceJournal journal = InvoiceJournal.open(directory.resolve("journal"), false)) {
+            journal.submit(finalInvoice("ORD-1"));
+            try (InvoiceJournalDrainer drainer = new InvoiceJournalDrainer(journal, provider, 10)) {
+                drainer.start(Duration.ofHours(1));
+                long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+                while (drainer.lastFailure() == null && System.nanoTime() < deadline) {
+                    Thread.onSpinWait();
+                }
+
+                assertThat(drainer.lastFailure()).hasMessage("backend down");
+            }
+            assertThat(journal.uncertain()).extracting(InvoiceJournal.Entry::key).containsExactly("ORD-1/Final");
+        }
+    }
+
+    @Test
+    void shouldReplayStateAfterReopen() {
+        Path file = directory.resolve("journal");
+        try (InvoiceJournal journal = InvoiceJournal.open(file)) {
+            journal.submit(finalInvoice("ORD-1"));
+            journal.submit(finalInvoice("ORD-2"));
+            journal.submit(finalInvoice("ORD-3"));
+            journal.claim(2);
+            journal.markIssued("ORD-1/Final", "inv-1");
+        }
+
+        FakeInvoicingProvider provider = new FakeInvoicingProvider();
+        try (InvoiceJournal journal = InvoiceJournal.open(file)) {
+            assertThat(journal.entry("ORD-1/Final").invoiceId()).isEqualTo("inv-1");
+            assertThat(journal.uncertain()).extracting(InvoiceJournal.Entry::key).containsExactly("ORD-2/Final");
+            assertThat(journal.pending()).extracting(InvoiceJournal.Entry::request).containsExactly(finalInvoice("ORD-3"));
+
+            new InvoiceJournalDrainer(journal, provider, 10).drain();
+
+            assertThat(provider.calls).hasValue(1);
+            assertThat(journal.uncertain()).hasSize(1);
+        }
+    }
+
+    @Test
+    void shouldGrowBeyondInitialCapacity() {
+        Path file = directory.resolve("journal");
+        try (InvoiceJournal journal = InvoiceJournal.open(file, false, 256)) {
+            for (int i = 0; i < 500; i++) {
+                journal.submit(finalInvoice("ORD-" + i));
+            }
+        }
+        try (InvoiceJournal journal = InvoiceJournal.open(file, false, 256)) {
+            assertThat(journal.pending()).hasSize(500);
+        }
+    }
+
+    @Test
+    void shouldNotResubmitIssuedEntries() {
+        try (InvoiceJournal journal = InvoiceJournal.open(directory.resolve("journal"), false)) {
+            journal.submit(finalInvoice("ORD-1"));
+            journal.markIssued("ORD-1/Final", "inv-1");
+
+            assertThatThrownBy(() -> journal.resubmit("ORD-1/Final")).isInstanceOf(IllegalStateException.class);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InvoicePdfExporterTest {
+
+    /**
+     * Tracks how many PDF fetches run at once; the first {@code overlap} fetches wait for each other, so they are
+     * all in flight together. Fetching "broken" fails.
+     */
+    static class PdfProvider extends FakeInvoicingProvider {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final CountDownLatch overlap;
+
+        PdfProvider(int overlap) {
+            this.overlap = new CountDownLatch(overlap);
+        }
+
+        @Override
+        public byte[] fetchInvoicePdf(String invoiceId) {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                overlap.countDown();
+                if (!overlap.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("fetches did not overlap");
+                }
+                if (invoiceId.equals("broken")) {
+                    throw new IllegalStateException("backend error");
+                }
+                return super.fetchInvoicePdf(invoiceId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private static Map<String, String> unzip(byte[] archive) throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(zip.readAllBytes()));
+            }
+        }
+        return entries;
+    }
+
+    @Test
+    void shouldExportInInputOrderWithBoundedParallelism() throws IOException {
+        PdfProvider provider = new PdfProvider(4);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ids.add("inv-" + i);
+            provider.invoices.put("inv-" + i, FakeInvoicingProvider.invoice("inv-" + i, "order-" + i, true));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        PdfExportReport report = new InvoicePdfExporter(provider, 4).export(ids, out);
+
+        Map<String, String> entries = unzip(out.toByteArray());
+        assertThat(entries.keySet()).containsExactlyElementsOf(ids.stream().map(id -> id + ".pdf").toList());
+        assertThat(entries.get("inv-7.pdf")).isEqualTo("%PDF inv-7");
+        assertThat(report.exported()).isEqualTo(50);
+        assertThat(report.isComplete()).isTrue();
+        assertThat(report.entries()).containsEntry("inv-7", "inv-7.pdf").hasSize(50);
+        assertThat(provider.maxInFlight.get()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldReportMissingAndFailedItemsWithoutAborting() throws IOException {
+        PdfProvider provider = new PdfProvider(2);
+        provider.invoices.put("FV/1", FakeInvoicingProvider.invoice("FV/1", "order-1", true));
+        provider.invoices.put("broken", FakeInvoicingProvider.invoice("broken", "order-2", true));
+        provider.invoices.put("FV_1", FakeInvoicingProvider.invoice("FV_1", "order-3", true));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        PdfExportReport report = new InvoicePdfExporter(provider, 2).export(List.of("FV/1", "absent", "broken", "FV_1"), out);
+
+        assertThat(unzip(out.toByteArray())).containsOnlyKeys("FV_1.pdf", "FV_1-2.pdf");
+        assertThat(report.exported()).isEqualTo(2);
+        assertThat(report.entries()).containsExactly(Map.entry("FV/1", "FV_1.pdf"), Map.entry("FV_1", "FV_1-2.pdf"));
+        assertThat(report.missing()).containsExactly("absent");
+        assertThat(report.failures()).containsOnlyKeys("broken");
+        assertThat(report.isComplete()).isFalse();
+    }
+
+    @Test
+    void shouldAbortOnErrorFromProvider() {
+        PdfProvider provider = new PdfProvider(1) {
+            @Override
+            public byte[] fetchInvoicePdf(String invoiceId) {
+                throw new OutOfMemoryError("Java heap space");
+            }
+        };
+
+        assertThatThrownBy(() -> new InvoicePdfExporter(provider, 2).export(List.of("inv-1", "inv-2"), new ByteArrayOutputStream()))
+                .isInstanceOf(OutOfMemoryError.class);
+    }
+}
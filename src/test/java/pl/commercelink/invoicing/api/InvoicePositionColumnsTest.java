@@ -0,0 +1,78 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InvoicePositionColumnsTest {
+
+    private static List<InvoicePosition> positions(int count) {
+        Random random = new Random(42);
+        double[] vatRates = {1.23, 1.08, 1.05};
+        List<InvoicePosition> positions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double net = Math.round(random.nextDouble() * 100_000) / 100.0;
+            positions.add(new InvoicePosition("p" + i, "Product " + i, 1 + random.nextInt(20), Price.fromNet(net, vatRates[i % vatRates.length])));
+        }
+        return positions;
+    }
+
+    @Test
+    void shouldExposeEqualListView() {
+        List<InvoicePosition> positions = positions(1_000);
+
+        InvoicePositionColumns columns = InvoicePositionColumns.of(positions);
+
+        assertThat(columns).isEqualTo(positions);
+        assertThat(columns.get(7)).isEqualTo(positions.get(7));
+        assertThat(columns.qty(7)).isEqualTo(positions.get(7).qty());
+    }
+
+    @Test
+    void shouldComputeTotalsLikePriceTimes() {
+        List<InvoicePosition> positions = positions(1_000);
+
+        InvoicePositionColumns columns = InvoicePositionColumns.of(positions);
+
+        BigDecimal expectedGross = positions.stream()
+                .map(position -> BigDecimal.valueOf(position.totalPrice().grossValue()))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertThat(columns.grossTotal()).isEqualByComparingTo(expectedGross);
+    }
+
+    @Test
+    void shouldProduceSameVatBreakdownAsPositions() {
+        List<InvoicePosition> positions = positions(1_000);
+        Invoice invoice = new Invoice("1", null, null, null, null, "PLN", 1, false, null, InvoicePositionColumns.of(positions), null, null);
+
+        VatBreakdown fromColumns = new VatBreakdown();
+        fromColumns.add(invoice);
+
+        assertThat(fromColumns.totals()).isEqualTo(positions.stream().collect(VatBreakdown.positionsCollector()).totals());
+    }
+
+    @Test
+    void shouldBeKeptByInvoiceWithoutCopying() {
+        InvoicePositionColumns columns = InvoicePositionColumns.of(positions(10));
+
+        Invoice invoice = new Invoice("1", null, null, null, null, "PLN", 1, false, null, columns, null, null);
+
+        assertThat(invoice.positions()).isSameAs(columns);
+        assertThatThrownBy(() -> columns.add(columns.get(0))).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void shouldRejectPositionsWithoutPrice() {
+        List<InvoicePosition> positions = List.of(new InvoicePosition("p1", "Product 1", 1, null));
+
+        assertThatThrownBy(() -> InvoicePositionColumns.of(positions))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("p1");
+    }
+}
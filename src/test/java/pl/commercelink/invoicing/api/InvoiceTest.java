@@ -0,0 +1,87 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvoiceTest {
+
+    private static Invoice invoice(String id, String orderId) {
+        return FakeInvoicingProvider.invoice(id, orderId, false);
+    }
+
+    @Nested
+    class HasOrderId {
+
+        @Test
+        void shouldMatchSingleOrderId() {
+            assertThat(invoice("1", "ORD-1").hasOrderId("ORD-1")).isTrue();
+            assertThat(invoice("1", "ORD-1").hasOrderId("ORD-2")).isFalse();
+        }
+
+        @Test
+        void shouldMatchAnyOfCommaSeparatedOrderIdsIgnoringWhitespace() {
+            Invoice invoice = invoice("1", "ORD-1, ORD-2 ,ORD-3");
+            assertThat(invoice.hasOrderId("ORD-1")).isTrue();
+            assertThat(invoice.hasOrderId("ORD-2")).isTrue();
+            assertThat(invoice.hasOrderId("ORD-3")).isTrue();
+            assertThat(invoice.hasOrderId("ORD")).isFalse();
+            assertThat(invoice.hasOrderId("ORD-1, ORD-2")).isFalse();
+        }
+
+        @Test
+        void shouldIgnoreCase() {
+            assertThat(invoice("1", "ord-1,ORD-2").hasOrderId("ORD-1")).isTrue();
+            assertThat(invoice("1", "ord-1,ORD-2").hasOrderId("ord-2")).isTrue();
+        }
+
+        @Test
+        void shouldNotMatchBlankValues() {
+            assertThat(invoice("1", null).hasOrderId("ORD-1")).isFalse();
+            assertThat(invoice("1", " ").hasOrderId("ORD-1")).isFalse();
+            assertThat(invoice("1", "ORD-1,,").hasOrderId(" ")).isFalse();
+            assertThat(invoice("1", "ORD-1").hasOrderId(null)).isFalse();
+        }
+
+        @Test
+        void shouldNotTrimTheArgument() {
+            assertThat(invoice("1", "ORD-1").hasOrderId(" ORD-1")).isFalse();
+        }
+    }
+
+    @Nested
+    class OrderIds {
+
+        @Test
+        void shouldParseTrimmedNonEmptyOrderIds() {
+            assertThat(invoice("1", " ORD-1,, ORD-2 ,").orderIds()).containsExactly("ORD-1", "ORD-2");
+            assertThat(invoice("1", null).orderIds()).isEmpty();
+        }
+    }
+
+    @Nested
+    class OrderIndex {
+
+        @Test
+        void shouldFindInvoicesByAnyReferencedOrderIgnoringCase() {
+            Invoice first = invoice("1", "ORD-1, ORD-2");
+            Invoice second = invoice("2", "ord-2");
+            Invoice third = invoice("3", null);
+            InvoiceOrderIndex index = InvoiceOrderIndex.of(List.of(first, second, third));
+
+            assertThat(index.invoicesFor("ORD-2")).containsExactly(first, second);
+            assertThat(index.invoicesFor("ord-1")).containsExactly(first);
+            assertThat(index.invoicesFor("ORD-3")).isEmpty();
+            assertThat(index.orderCount()).isEqualTo(2);
+        }
+
+        @Test
+        void shouldListInvoiceOnceWhenOrderIsRepeated() {
+            Invoice invoice = invoice("1", "ORD-1,ORD-1");
+            assertThat(InvoiceOrderIndex.of(List.of(invoice)).invoicesFor("ORD-1")).containsExactly(invoice);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class InvoicingProviderRegistryTest {
+
+    private final InvoicingProviderDescriptor first = mock(InvoicingProviderDescriptor.class);
+    private final InvoicingProviderDescriptor second = mock(InvoicingProviderDescriptor.class);
+    private final Map<InvoicingProviderDescriptor, String> names = Map.of(first, "first", second, "second");
+    private final Map<InvoicingProviderDescriptor, AtomicInteger> creations = new ConcurrentHashMap<>();
+
+    private InvoicingProviderRegistry registry(List<InvoicingProviderDescriptor> descriptors) {
+        return new InvoicingProviderRegistry(descriptors, names::get, descriptor -> {
+            creations.computeIfAbsent(descriptor, key -> new AtomicInteger()).incrementAndGet();
+            return new FakeInvoicingProvider();
+        });
+    }
+
+    @Test
+    void shouldCreateProvidersLazilyAndOnlyOnce() {
+        InvoicingProviderRegistry registry = registry(List.of(first, second));
+
+        assertThat(registry.names()).containsExactlyInAnyOrder("first", "second");
+        assertThat(creations).isEmpty();
+
+        InvoicingProvider provider = registry.provider("first");
+
+        assertThat(registry.provider("first")).isSameAs(provider);
+        assertThat(creations).containsOnlyKeys(first);
+        assertThat(creations.get(first)).hasValue(1);
+        assertThat(registry.isCreated("second")).isFalse();
+    }
+
+    @Test
+    void shouldReturnNullForUnknownName() {
+        assertThat(registry(List.of(first)).provider("missing")).isNull();
+    }
+
+    @Test
+    void shouldWarmUpInParallel() {
+        InvoicingProviderRegistry registry = registry(List.of(first, second));
+
+        registry.warmUp(List.of("first", "second")).join();
+
+        assertThat(registry.isCreated("first")).isTrue();
+        assertThat(registry.isCreated("second")).isTrue();
+    }
+
+    @Test
+    void shouldRejectDuplicateNames() {
+        InvoicingProviderDescriptor duplicate = mock(InvoicingProviderDescriptor.class);
+
+        assertThatThrownBy(() -> new InvoicingProviderRegistry(List.of(first, duplicate), descriptor -> "same", descriptor -> null))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
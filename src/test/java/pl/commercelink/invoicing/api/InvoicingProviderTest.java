@@ -0,0 +1,188 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InvoicingProviderTest {
+
+    @Nested
+    class CreateInvoices {
+
+        @Test
+        void shouldReturnResultsInRequestOrder() {
+            FakeInvoicingProvider provider = new FakeInvoicingProvider();
+            List<InvoiceRequest> requests = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                requests.add(InvoiceRequest.finalInvoice().orderId("order-" + i).build());
+            }
+
+            List<InvoiceCreationResult> results = provider.createInvoices(requests);
+
+            assertThat(results).hasSize(100);
+            for (int i = 0; i < 100; i++) {
+                assertThat(results.get(i).request()).isSameAs(requests.get(i));
+                assertThat(results.get(i).invoice().orderId()).isEqualTo("order-" + i);
+            }
+        }
+
+        @Test
+        void shouldReportFailuresWithoutStoppingTheBatch() {
+            FakeInvoicingProvider provider = new FakeInvoicingProvider();
+            List<InvoiceRequest> requests = List.of(
+                    InvoiceRequest.finalInvoice().orderId("order-1").build(),
+                    InvoiceRequest.finalInvoice().build(),
+                    InvoiceRequest.finalInvoice().orderId("order-3").build());
+
+            List<InvoiceCreationResult> results = provider.createInvoices(requests);
+
+            assertThat(results).extracting(InvoiceCreationResult::isSuccess).containsExactly(true, false, true);
+            assertThat(results.get(1).failure()).isInstanceOf(IllegalArgumentException.class);
+        }
+
+        @Test
+        void shouldPropagateErrors() {
+            FakeInvoicingProvider provider = new FakeInvoicingProvider() {
+                @Override
+                public Invoice createInvoice(InvoiceRequest request) {
+                    if ("order-3".equals(request.orderId())) {
+                        throw new AssertionError("broken provider");
+                    }
+                    return super.createInvoice(request);
+                }
+            };
+            List<InvoiceRequest> requests = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                requests.add(InvoiceRequest.finalInvoice().orderId("order-" + i).build());
+            }
+
+            assertThatThrownBy(() -> provider.createInvoices(requests)).isInstanceOf(AssertionError.class);
+        }
+
+        @Test
+        void shouldHandleEmptyBatch() {
+            assertThat(new FakeInvoicingProvider().createInvoices(List.of())).isEmpty();
+        }
+    }
+
+    @Nested
+    class MultiGet {
+
+        @Test
+        void shouldKeyInvoicesByIdAndSkipMissing() {
+            FakeInvoicingProvider provider = new FakeInvoicingProvider();
+            for (int i = 0; i < 50; i++) {
+                provider.invoices.put("inv-" + i, FakeInvoicingProvider.invoice("inv-" + i, "order-" + i, false));
+            }
+
+            Map<String, Invoice> invoices = provider.fetchInvoicesByIds(List.of("inv-7", "missing", "inv-3", "inv-7"), InvoiceDirection.Sale);
+
+            assertThat(invoices.keySet()).containsExactly("inv-7", "inv-3");
+            assertThat(invoices.get("inv-3").orderId()).isEqualTo("order-3");
+            assertThat(provider.calls).hasValue(3);
+        }
+
+        @Test
+        void shouldMapEveryOrderIdToItsInvoices() {
+            FakeInvoicingProvider provider = new FakeInvoicingProvider();
+            provider.invoices.put("inv-1", FakeInvoicingProvider.invoice("inv-1", "order-1", true));
+            provider.invoices.put("inv-2", FakeInvoicingProvider.invoice("inv-2", "order-1", false));
+
+            Map<String, List<Invoice>> invoices = provider.fetchInvoicesByOrderIds(List.of("order-1", "order-2"), InvoiceDirection.Sale);
+
+            assertThat(invoices.get("order-1")).extracting(Invoice::id).containsExactlyInAnyOrder("inv-1", "inv-2");
+            assertThat(invoices.get("order-2")).isEmpty();
+        }
+
+        @Test
+        void shouldMapOrdersToEmptyListWhenLookupReturnsNull() {
+            FakeInvoicingProvider provider = new FakeInvoicingProvider() {
+                @Override
+                public List<Invoice> fetchInvoicesByOrderId(String orderId, InvoiceDirection direction) {
+                    return null;
+                }
+            };
+
+            Map<String, List<Invoice>> invoices = provider.fetchInvoicesByOrderIds(List.of("order-1"), InvoiceDirection.Sale);
+
+            assertThat(invoices).containsExactly(Map.entry("order-1", List.of()));
+        }
+
+        @Test
+        void shouldFailWholeCallWhenOneLookupFails() {
+            FakeInvoicingProvider provider = new FakeInvoicingProvider() {
+                @Override
+                public Invoice fetchInvoiceById(String invoiceId, InvoiceDirection direction) {
+                    if (invoiceId.equals("broken")) {
+                        throw new IllegalStateException("backend down");
+                    }
+                    return super.fetchInvoiceById(invoiceId, direction);
+                }
+            };
+
+            assertThatThrownBy(() -> provider.fetchInvoicesByIds(List.of("inv-1", "broken"), InvoiceDirection.Sale))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("backend down");
+        }
+    }
+
+    @Nested
+    class StreamInvoices {
+
+        private final InvoiceQuery query = InvoiceQuery.bySellDate(InvoiceDirection.Sale, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31));
+
+        private FakeInvoicingProvider pagedProvider(int invoiceCount, int pageSize, AtomicInteger pagesFetched) {
+            return new FakeInvoicingProvider() {
+                @Override
+                public InvoicePage fetchInvoicePage(InvoiceQuery query, String pageToken) {
+                    pagesFetched.incrementAndGet();
+                    int from = pageToken == null ? 0 : Integer.parseInt(pageToken);
+                    int to = Math.min(invoiceCount, from + pageSize);
+                    List<Invoice> invoices = new ArrayList<>();
+                    for (int i = from; i < to; i++) {
+                        invoices.add(FakeInvoicingProvider.invoice("inv-" + i, "order-" + i, false));
+                    }
+                    return new InvoicePage(invoices, to < invoiceCount ? String.valueOf(to) : null);
+                }
+            };
+        }
+
+        @Test
+        void shouldStreamAllPagesInOrder() {
+            AtomicInteger pagesFetched = new AtomicInteger();
+            try (Stream<Invoice> invoices = pagedProvider(25, 10, pagesFetched).streamInvoices(query)) {
+                assertThat(invoices.map(Invoice::id).toList())
+                        .hasSize(25)
+                        .startsWith("inv-0", "inv-1")
+                        .endsWith("inv-24");
+            }
+            assertThat(pagesFetched).hasValue(3);
+        }
+
+        @Test
+        void shouldFetchLazily() {
+            AtomicInteger pagesFetched = new AtomicInteger();
+            Stream<Invoice> invoices = pagedProvider(1_000, 10, pagesFetched).streamInvoices(query);
+            assertThat(pagesFetched).hasValue(0);
+
+            assertThat(invoices.limit(5).count()).isEqualTo(5);
+            invoices.close();
+            assertThat(pagesFetched.get()).isLessThanOrEqualTo(2);
+        }
+
+        @Test
+        void shouldBeUnsupportedByDefault() {
+            assertThatThrownBy(() -> new FakeInvoicingProvider().streamInvoices(query).findFirst())
+                    .isInstanceOf(UnsupportedOperationException.class);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package pl.commercelink.invoicing.api;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JfrInvoicingProviderTest {
+
+    private static final String EVENT = "pl.commercelink.invoicing.ProviderCall";
+
+    private static List<RecordedEvent> record(Path file, boolean enable, Runnable calls) throws IOException {
+        try (Recording recording = new Recording()) {
+            if (enable) {
+                recording.enable(EVENT);
+            }
+            recording.start();
+            calls.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals(EVENT))
+                .toList();
+    }
+
+    @Test
+    void shouldRecordCallsWhenEnabled(@TempDir Path directory) throws IOException {
+        FakeInvoicingProvider backend = new FakeInvoicingProvider();
+        backend.invoices.put("inv-1", FakeInvoicingProvider.invoice("inv-1", "order-1", true));
+        JfrInvoicingProvider provider = new JfrInvoicingProvider(backend, "fake");
+
+        List<RecordedEvent> events = record(directory.resolve("calls.jfr"), true, () -> {
+            provider.fetchInvoiceById("inv-1", InvoiceDirection.Sale);
+            provider.fetchInvoicePdf("inv-1");
+            assertThatThrownBy(() -> provider.createInvoice(InvoiceRequest.advanceInvoice().build()))
+                    .isInstanceOf(IllegalArgumentException.class);
+        });
+
+        assertThat(events).hasSize(3);
+        RecordedEvent fetch = events.get(0);
+        assertThat(fetch.getString("provider")).isEqualTo("fake");
+        assertThat(fetch.getString("operation")).isEqualTo("FetchInvoiceById");
+        assertThat(fetch.getString("direction")).isEqualTo("Sale");
+        assertThat(fetch.getInt("invoices")).isEqualTo(1);
+        assertThat(fetch.getInt("positions")).isEqualTo(1);
+        assertThat(fetch.getBoolean("success")).isTrue();
+        assertThat(events.get(1).getLong("payloadSize")).isEqualTo("%PDF inv-1".length());
+        RecordedEvent create = events.get(2);
+        assertThat(create.getString("kind")).isEqualTo("Advance");
+        assertThat(create.getBoolean("success")).isFalse();
+        assertThat(create.getString("error")).isEqualTo(IllegalArgumentException.class.getName());
+    }
+
+    @Test
+    void shouldRecordBatchWithFailedRequestsAsFailure(@TempDir Path directory) throws IOException {
+        JfrInvoicingProvider provider = new JfrInvoicingProvider(new FakeInvoicingProvider(), "fake");
+
+        List<RecordedEvent> events = record(directory.resolve("calls.jfr"), true, () -> {
+            provider.createInvoices(List.of(InvoiceRequest.finalInvoice().orderId("order-1").build()));
+            provider.createInvoices(List.of(InvoiceRequest.finalInvoice().build(), InvoiceRequest.finalInvoice().build()));
+        });
+
+        assertThat(events).filteredOn(event -> event.getString("operation").equals("CreateInvoices")).satisfiesExactly(
+                passed -> {
+                    assertThat(passed.getBoolean("success")).isTrue();
+                    assertThat(passed.getInt("failed")).isZero();
+                },
+                failed -> {
+                    assertThat(failed.getBoolean("success")).isFalse();
+                    assertThat(failed.getInt("invoices")).isEqualTo(2);
+                    assertThat(failed.getInt("failed")).isEqualTo(2);
+                    assertThat(failed.getString("error")).isEqualTo(IllegalArgumentException.class.getName());
+                });
+    }
+
+    @Test
+    void shouldRecordErrorsAsFailures(@TempDir Path directory) throws IOException {
+        JfrInvoicingProvider provider = new JfrInvoicingProvider(new FakeInvoicingProvider() {
+            @Override
+            public BillingParty fetchBillingPartyById(String billingPartyId) {
+                throw new AssertionError("boom");
+            }
+        }, "fake");
+
+        List<RecordedEvent> events = record(directory.resolve("calls.jfr"), true,
+                () -> assertThatThrownBy(() -> provider.fetchBillingPartyById("party-1")).isInstanceOf(AssertionError.class));
+
+        assertThat(events).singleElement().satisfies(event -> {
+            assertThat(event.getBoolean("success")).isFalse();
+            assertThat(event.getString("error")).isEqualTo(AssertionError.class.getName());
+        });
+    }
+
+    @Test
+    void shouldBeDisabledByDefault(@TempDir Path directory) throws IOException {
+        JfrInvoicingProvider provider = new JfrInvoicingProvider(new FakeInvoicingProvider(), "fake");
+
+        List<RecordedEvent> events = record(directory.resolve("calls.jfr"), false,
+                () -> provider.fetchInvoiceById("inv-1", InvoiceDirection.Sale));
+
+        assertThat(events).isEmpty();
+    }
+}
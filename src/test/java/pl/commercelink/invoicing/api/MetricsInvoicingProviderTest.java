@@ -0,0 +1,146 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MetricsInvoicingProviderTest {
+
+    private final FakeInvoicingProvider backend = new FakeInvoicingProvider();
+    private final MetricsInvoicingProvider provider = new MetricsInvoicingProvider(backend, "fake");
+
+    private static InvoicingMetricsSnapshot.OperationStats stats(InvoicingMetricsSnapshot snapshot,
+                                                                 InvoicingOperation operation, InvoiceDirection direction) {
+        return snapshot.operations().stream()
+                .filter(stats -> stats.operation() == operation && stats.direction() == direction)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    void shouldCountCallsAndErrorsPerOperationAndDirection() {
+        backend.invoices.put("inv-1", FakeInvoicingProvider.invoice("inv-1", "order-1", true));
+
+        provider.fetchInvoiceById("inv-1", InvoiceDirection.Sale);
+        provider.fetchInvoiceById("inv-1", InvoiceDirection.Sale);
+        provider.fetchInvoiceById("inv-1", InvoiceDirection.Purchase);
+        provider.createInvoice(InvoiceRequest.finalInvoice().orderId("order-2").build());
+        assertThatThrownBy(() -> provider.createInvoice(InvoiceRequest.finalInvoice().build()))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        InvoicingMetricsSnapshot snapshot = provider.snapshot();
+
+        assertThat(snapshot.providerName()).isEqualTo("fake");
+        assertThat(stats(snapshot, InvoicingOperation.FetchInvoiceById, InvoiceDirection.Sale).calls()).isEqualTo(2);
+        assertThat(stats(snapshot, InvoicingOperation.FetchInvoiceById, InvoiceDirection.Purchase).calls()).isEqualTo(1);
+        InvoicingMetricsSnapshot.OperationStats creates = stats(snapshot, InvoicingOperation.CreateInvoice, null);
+        assertThat(creates.calls()).isEqualTo(2);
+        assertThat(creates.errors()).isEqualTo(1);
+        assertThat(creates.inFlight()).isZero();
+        assertThat(creates.latency().count()).isEqualTo(2);
+        assertThat(snapshot.operations()).extracting(InvoicingMetricsSnapshot.OperationStats::operation)
+                .doesNotContain(InvoicingOperation.FetchInvoicePdf);
+    }
+
+    @Test
+    void shouldCountCreatedAndFailedKinds() {
+        provider.createInvoice(InvoiceRequest.advanceInvoice().orderId("order-1").build());
+        provider.createInvoices(List.of(
+                InvoiceRequest.advanceInvoice().orderId("order-2").build(),
+                InvoiceRequest.finalInvoice().orderId("order-1").build()));
+        assertThatThrownBy(() -> provider.createInvoice(InvoiceRequest.finalInvoice().build()))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        InvoicingMetricsSnapshot snapshot = provider.snapshot();
+
+        assertThat(snapshot.createdByKind().get(InvoiceKind.Advance)).isEqualTo(2);
+        assertThat(snapshot.createdByKind().get(InvoiceKind.Final)).isEqualTo(1);
+        assertThat(snapshot.createdByKind().get(InvoiceKind.Standard)).isZero();
+        assertThat(snapshot.failedByKind().get(InvoiceKind.Final)).isEqualTo(1);
+        assertThat(snapshot.failedByKind().get(InvoiceKind.Advance)).isZero();
+    }
+
+    @Test
+    void shouldCountBatchWithFailedRequestsAsError() {
+        provider.createInvoices(List.of(InvoiceRequest.advanceInvoice().orderId("order-1").build()));
+        List<InvoiceCreationResult> results = provider.createInvoices(List.of(
+                InvoiceRequest.advanceInvoice().orderId("order-2").build(),
+                InvoiceRequest.finalInvoice().build()));
+
+        InvoicingMetricsSnapshot snapshot = provider.snapshot();
+
+        assertThat(results).filteredOn(InvoiceCreationResult::isSuccess).hasSize(1);
+        InvoicingMetricsSnapshot.OperationStats batches = stats(snapshot, InvoicingOperation.CreateInvoices, null);
+        assertThat(batches.calls()).isEqualTo(2);
+        assertThat(batches.errors()).isEqualTo(1);
+        assertThat(snapshot.createdByKind().get(InvoiceKind.Advance)).isEqualTo(2);
+        assertThat(snapshot.createdByKind().get(InvoiceKind.Final)).isZero();
+        assertThat(snapshot.failedByKind().get(InvoiceKind.Final)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRecordPdfSizes() {
+        backend.invoices.put("inv-1", FakeInvoicingProvider.invoice("inv-1", "order-1", true));
+
+        provider.fetchInvoicePdf("inv-1");
+        provider.fetchInvoicePdf("missing");
+
+        Histogram.Snapshot pdfSizes = provider.snapshot().pdfSizes();
+        assertThat(pdfSizes.count()).isEqualTo(1);
+        assertThat(pdfSizes.max()).isEqualTo("%PDF inv-1".length());
+    }
+
+    @Test
+    void shouldRecordSizeAndStreamingTimeOfOpenedPdfOnClose() throws Exception {
+        backend.invoices.put("inv-1", FakeInvoicingProvider.invoice("inv-1", "order-1", true));
+        backend.invoices.put("inv-2", FakeInvoicingProvider.invoice("inv-2", "order-2", true));
+
+        InputStream pdf = provider.openInvoicePdf("inv-1");
+        assertThat(pdf.readAllBytes()).isEqualTo("%PDF inv-1".getBytes());
+        assertThat(provider.snapshot().pdfStreamTimes().count()).isZero();
+        pdf.close();
+        pdf.close();
+        try (InputStream partial = provider.openInvoicePdf("inv-2")) {
+            assertThat(partial.read()).isEqualTo('%');
+        }
+        assertThat(provider.openInvoicePdf("missing")).isNull();
+
+        InvoicingMetricsSnapshot snapshot = provider.snapshot();
+        assertThat(snapshot.pdfStreamTimes().count()).isEqualTo(2);
+        assertThat(snapshot.pdfSizes().count()).isEqualTo(1);
+        assertThat(snapshot.pdfSizes().max()).isEqualTo("%PDF inv-1".length());
+    }
+
+    @Test
+    void shouldReportCallsInFlight() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MetricsInvoicingProvider slow = new MetricsInvoicingProvider(new FakeInvoicingProvider() {
+            @Override
+            public BillingParty fetchCostCenterById(String costCenterId) {
+                entered.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }
+        }, "slow");
+
+        Thread caller = Thread.ofVirtual().start(() -> slow.fetchCostCenterById("cc-1"));
+        entered.await(5, TimeUnit.SECONDS);
+        long inFlight = stats(slow.snapshot(), InvoicingOperation.FetchCostCenterById, null).inFlight();
+        release.countDown();
+        caller.join();
+
+        assertThat(inFlight).isEqualTo(1);
+        assertThat(stats(slow.snapshot(), InvoicingOperation.FetchCostCenterById, null).inFlight()).isZero();
+    }
+}
@@ -0,0 +1,108 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffHeapCachingInvoicingProviderTest {
+
+    private final FakeInvoicingProvider backend = new FakeInvoicingProvider();
+    private final AtomicLong now = new AtomicLong();
+    private final OffHeapCachingInvoicingProvider provider = OffHeapCachingInvoicingProvider.builder(backend)
+            .paidTtl(Duration.ofHours(1))
+            .unpaidTtl(Duration.ofSeconds(30))
+            .ticker(now::get)
+            .build();
+
+    @Test
+    void shouldServeRepeatedLookupsFromCache() {
+        Invoice invoice = FakeInvoicingProvider.invoice("inv-1", "order-1", true);
+        backend.invoices.put("inv-1", invoice);
+
+        assertThat(provider.fetchInvoiceById("inv-1", InvoiceDirection.Sale)).isEqualTo(invoice);
+        assertThat(provider.fetchInvoiceById("inv-1", InvoiceDirection.Sale)).isEqualTo(invoice);
+        assertThat(provider.fetchInvoicesByOrderId("order-1", InvoiceDirection.Sale)).containsExactly(invoice);
+        assertThat(provider.fetchInvoicesByOrderId("order-1", InvoiceDirection.Sale)).containsExactly(invoice);
+
+        assertThat(backend.calls).hasValue(2);
+    }
+
+    @Test
+    void shouldExpireUnpaidInvoicesSooner() {
+        backend.invoices.put("paid", FakeInvoicingProvider.invoice("paid", "order-1", true));
+        backend.invoices.put("unpaid", FakeInvoicingProvider.invoice("unpaid", "order-2", false));
+        provider.fetchInvoiceById("paid", InvoiceDirection.Sale);
+        provider.fetchInvoiceById("unpaid", InvoiceDirection.Sale);
+
+        backend.invoices.put("unpaid", FakeInvoicingProvider.invoice("unpaid", "order-2", true));
+        now.addAndGet(Duration.ofMinutes(1).toNanos());
+
+        assertThat(provider.fetchInvoiceById("unpaid", InvoiceDirection.Sale).paid()).isTrue();
+        assertThat(provider.fetchInvoiceById("paid", InvoiceDirection.Sale).paid()).isTrue();
+        assertThat(backend.calls).hasValue(3);
+    }
+
+    @Test
+    void shouldFetchOnlyMissingInvoicesInMultiGet() {
+        for (int i = 0; i < 3; i++) {
+            backend.invoices.put("inv-" + i, FakeInvoicingProvider.invoice("inv-" + i, "order-" + i, true));
+        }
+        provider.fetchInvoiceById("inv-1", InvoiceDirection.Sale);
+
+        Map<String, Invoice> invoices = provider.fetchInvoicesByIds(List.of("inv-2", "inv-1", "missing", "inv-0"), InvoiceDirection.Sale);
+
+        assertThat(invoices.keySet()).containsExactly("inv-2", "inv-1", "inv-0");
+        assertThat(backend.calls).hasValue(4);
+    }
+
+    @Test
+    void shouldInvalidateOnChangeFeedDelivery() {
+        backend.invoices.put("inv-1", FakeInvoicingProvider.invoice("inv-1", "order-1", false));
+        provider.fetchInvoicesByOrderId("order-1", InvoiceDirection.Sale);
+
+        Invoice paid = FakeInvoicingProvider.invoice("inv-1", "order-1", true);
+        backend.invoices.put("inv-1", paid);
+        provider.invalidatingListener().onChanges(InvoiceDirection.Sale, List.of(paid));
+
+        assertThat(provider.fetchInvoicesByOrderId("order-1", InvoiceDirection.Sale)).containsExactly(paid);
+    }
+
+    @Test
+    void shouldStayWithinMaximumBytesAndKeepHotEntries() {
+        OffHeapCachingInvoicingProvider small = OffHeapCachingInvoicingProvider.builder(backend)
+                .maximumBytes(4096)
+                .build();
+        for (int i = 0; i < 500; i++) {
+            backend.invoices.put("inv-" + i, FakeInvoicingProvider.invoice("inv-" + i, "order-" + i, true));
+        }
+
+        for (int i = 0; i < 500; i++) {
+            small.fetchInvoiceById("inv-" + i, InvoiceDirection.Sale);
+            small.fetchInvoiceById("inv-0", InvoiceDirection.Sale);
+        }
+        int calls = backend.calls.get();
+
+        assertThat(small.size()).isBetween(1, 100);
+        assertThat(small.fetchInvoiceById("inv-0", InvoiceDirection.Sale).id()).isEqualTo("inv-0");
+        assertThat(backend.calls).hasValue(calls);
+    }
+
+    @Test
+    void shouldDropCachedOrderListsWhenInvoicesAreCreated() {
+        backend.invoices.put("advance-1", FakeInvoicingProvider.invoice("advance-1", "order-1", false));
+        backend.invoices.put("advance-2", FakeInvoicingProvider.invoice("advance-2", "order-2", false));
+        provider.fetchInvoicesByOrderId("order-1", InvoiceDirection.Sale);
+        provider.fetchInvoicesByOrderId("order-2", InvoiceDirection.Sale);
+
+        provider.createInvoice(InvoiceRequest.finalInvoice().orderId("order-1").build());
+        provider.createInvoices(List.of(InvoiceRequest.finalInvoice().orderId("order-2").build()));
+
+        assertThat(provider.fetchInvoicesByOrderId("order-1", InvoiceDirection.Sale)).hasSize(2);
+        assertThat(provider.fetchInvoicesByOrderId("order-2", InvoiceDirection.Sale)).hasSize(2);
+    }
+}
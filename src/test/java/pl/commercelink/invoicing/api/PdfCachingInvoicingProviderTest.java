@@ -0,0 +1,154 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PdfCachingInvoicingProviderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldServeRepeatDownloadsFromDisk() throws IOException {
+        FakeInvoicingProvider backend = new FakeInvoicingProvider();
+        backend.invoices.put("FV/1", FakeInvoicingProvider.invoice("FV/1", "order-1", false));
+        PdfCachingInvoicingProvider provider = new PdfCachingInvoicingProvider(backend, directory);
+
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        long written = provider.transferInvoicePdf("FV/1", Channels.newChannel(first));
+        provider.transferInvoicePdf("FV/1", Channels.newChannel(second));
+
+        assertThat(written).isEqualTo("%PDF FV/1".length());
+        assertThat(second.toByteArray()).isEqualTo(first.toByteArray()).isEqualTo("%PDF FV/1".getBytes());
+        assertThat(provider.fetchInvoicePdf("FV/1")).isEqualTo(first.toByteArray());
+        assertThat(backend.calls).hasValue(1);
+    }
+
+    @Test
+    void shouldNotCacheMissingDocuments() throws IOException {
+        FakeInvoicingProvider backend = new FakeInvoicingProvider();
+        PdfCachingInvoicingProvider provider = new PdfCachingInvoicingProvider(backend, directory);
+
+        assertThat(provider.writeInvoicePdf("missing", new ByteArrayOutputStream())).isEqualTo(-1);
+        assertThat(provider.openInvoicePdf("missing")).isNull();
+        assertThat(directory).isEmptyDirectory();
+    }
+
+    @Test
+    void shouldCacheIdsTooLongForAFileName() throws IOException {
+        String id = "FV/" + "9".repeat(300);
+        FakeInvoicingProvider backend = new FakeInvoicingProvider();
+        backend.invoices.put(id, FakeInvoicingProvider.invoice(id, "order-1", false));
+        PdfCachingInvoicingProvider provider = new PdfCachingInvoicingProvider(backend, directory);
+
+        assertThat(provider.fetchInvoicePdf(id)).isEqualTo(("%PDF " + id).getBytes());
+        assertThat(provider.fetchInvoicePdf(id)).isEqualTo(("%PDF " + id).getBytes());
+        assertThat(backend.calls).hasValue(1);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files).singleElement().satisfies(file -> assertThat(file.getFileName().toString()).hasSize(64 + ".pdf".length()));
+        }
+    }
+
+    @Test
+    void shouldDeleteOldestDownloadsBeyondMaxBytes() throws IOException {
+        FakeInvoicingProvider backend = new FakeInvoicingProvider();
+        for (String id : List.of("inv-1", "inv-2", "inv-3")) {
+            backend.invoices.put(id, FakeInvoicingProvider.invoice(id, "order-1", false));
+        }
+        long pdfSize = "%PDF inv-1".length();
+        PdfCachingInvoicingProvider provider = new PdfCachingInvoicingProvider(backend, directory, 2 * pdfSize);
+
+        provider.fetchInvoicePdf("inv-1");
+        try (Stream<Path> files = Files.list(directory)) {
+            Files.setLastModifiedTime(files.findFirst().orElseThrow(), FileTime.fromMillis(0));
+        }
+        provider.fetchInvoicePdf("inv-2");
+        provider.fetchInvoicePdf("inv-3");
+        provider.fetchInvoicePdf("inv-2");
+        provider.fetchInvoicePdf("inv-3");
+
+        assertThat(provider.cachedBytes()).isEqualTo(2 * pdfSize);
+        assertThat(backend.calls).hasValue(3);
+        assertThat(provider.fetchInvoicePdf("inv-1")).isEqualTo("%PDF inv-1".getBytes());
+        assertThat(backend.calls).hasValue(4);
+    }
+
+    @Test
+    void shouldKeepDocumentLargerThanMaxBytesUntilNextDownload() throws IOException {
+        FakeInvoicingProvider backend = new FakeInvoicingProvider();
+        backend.invoices.put("inv-1", FakeInvoicingProvider.invoice("inv-1", "order-1", false));
+        PdfCachingInvoicingProvider provider = new PdfCachingInvoicingProvider(backend, directory, 1);
+
+        assertThat(provider.fetchInvoicePdf("inv-1")).isEqualTo("%PDF inv-1".getBytes());
+    }
+
+    @Test
+    void shouldFallBackToWriteWhenTransferMakesNoProgress() throws IOException {
+        FakeInvoicingProvider backend = new FakeInvoicingProvider();
+        backend.invoices.put("inv-1", FakeInvoicingProvider.invoice("inv-1", "order-1", false));
+        PdfCachingInvoicingProvider provider = new PdfCachingInvoicingProvider(backend, directory);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = provider.transferInvoicePdf("inv-1", new StallingChannel(out, 3));
+
+        assertThat(written).isEqualTo("%PDF inv-1".length());
+        assertThat(out.toByteArray()).isEqualTo("%PDF inv-1".getBytes());
+    }
+
+    @Test
+    void shouldFailWhenTargetAcceptsNoBytes() throws IOException {
+        FakeInvoicingProvider backend = new FakeInvoicingProvider();
+        backend.invoices.put("inv-1", FakeInvoicingProvider.invoice("inv-1", "order-1", false));
+        PdfCachingInvoicingProvider provider = new PdfCachingInvoicingProvider(backend, directory);
+
+        assertThatThrownBy(() -> provider.transferInvoicePdf("inv-1", new StallingChannel(new ByteArrayOutputStream(), 0)))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("accepted no bytes");
+    }
+
+    /** Accepts up to {@code chunk} bytes on every other write and nothing in between, like a congested non-blocking socket. */
+    private static final class StallingChannel implements WritableByteChannel {
+        private final ByteArrayOutputStream out;
+        private final int chunk;
+        private boolean stall = true;
+
+        StallingChannel(ByteArrayOutputStream out, int chunk) {
+            this.out = out;
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            stall = !stall;
+            int n = stall ? 0 : Math.min(chunk, src.remaining());
+            for (int i = 0; i < n; i++) {
+                out.write(src.get());
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VatBreakdownTest {
+
+    private static final double[] VAT_RATES = {1.23, 1.08, 1.05, 1.0};
+
+    private static List<InvoicePosition> positions(int count) {
+        Random random = new Random(42);
+        List<InvoicePosition> positions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double net = Math.round(random.nextDouble() * 100_000) / 100.0;
+            String currency = i % 10 == 0 ? "EUR" : "PLN";
+            Price price = CompactPrice.ofMinorUnits(Math.round(net * 100), Math.round(net * 123), VAT_RATES[i % VAT_RATES.length], currency).toPrice();
+            positions.add(new InvoicePosition("p" + i, "Item", 1 + random.nextInt(10), price));
+        }
+        return positions;
+    }
+
+    @Test
+    void shouldGroupByCurrencyAndVatRate() {
+        VatBreakdown breakdown = new VatBreakdown();
+        breakdown.add(new InvoicePosition("1", "A", 2, Price.fromNet(100)));
+        breakdown.add(new InvoicePosition("2", "B", 1, Price.fromNet(50, 1.08)));
+        breakdown.add(new InvoicePosition("3", "C", 3, Price.fromNet(10)));
+        breakdown.add(new InvoicePosition("4", "D", 1, new Price(100, 119, "EUR")));
+
+        assertThat(breakdown.totals()).containsExactly(
+                new VatTotal("EUR", 23, new BigDecimal("100.00"), new BigDecimal("19.00"), new BigDecimal("119.00")),
+                new VatTotal("PLN", 23, new BigDecimal("230.00"), new BigDecimal("52.90"), new BigDecimal("282.90")),
+                new VatTotal("PLN", 8, new BigDecimal("50.00"), new BigDecimal("4.00"), new BigDecimal("54.00")));
+    }
+
+    @Test
+    void shouldMatchPriceTimesSummedWithBigDecimal() {
+        List<InvoicePosition> positions = positions(10_000);
+
+        BigDecimal expectedGross = positions.stream()
+                .filter(position -> position.price().currency().equals("PLN") && position.price().vatRatePercent() == 8)
+                .map(position -> BigDecimal.valueOf(position.totalPrice().grossValue()))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        VatTotal total = positions.stream().collect(VatBreakdown.positionsCollector()).totals().stream()
+                .filter(vatTotal -> vatTotal.currency().equals("PLN") && vatTotal.vatRatePercent() == 8)
+                .findFirst().orElseThrow();
+
+        assertThat(total.gross()).isEqualByComparingTo(expectedGross);
+    }
+
+    @Test
+    void shouldGiveSameResultInParallel() {
+        List<InvoicePosition> positions = positions(100_000);
+
+        List<VatTotal> sequential = positions.stream().collect(VatBreakdown.positionsCollector()).totals();
+        List<VatTotal> parallel = positions.parallelStream().collect(VatBreakdown.positionsCollector()).totals();
+
+        assertThat(parallel).isEqualTo(sequential);
+    }
+
+    @Test
+    void shouldSumInvoicePositions() {
+        Invoice invoice = FakeInvoicingProvider.invoice("1", "order-1", false);
+
+        List<VatTotal> totals = List.of(invoice, invoice).stream().collect(VatBreakdown.invoicesCollector()).totals();
+
+        assertThat(totals).containsExactly(
+                new VatTotal("PLN", 23, new BigDecimal("200.00"), new BigDecimal("46.00"), new BigDecimal("246.00")));
+    }
+}
@@ -0,0 +1,166 @@
+package pl.commercelink.invoicing.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class VirtualThreadInvoicingProviderTest {
+
+    @Test
+    void shouldCompleteWithResultOnVirtualThread() throws Exception {
+        boolean[] virtual = new boolean[1];
+        FakeInvoicingProvider backend = new FakeInvoicingProvider() {
+            @Override
+            public Invoice fetchInvoiceById(String invoiceId, InvoiceDirection direction) {
+                virtual[0] = Thread.currentThread().isVirtual();
+                return super.fetchInvoiceById(invoiceId, direction);
+            }
+        };
+        backend.invoices.put("inv-1", FakeInvoicingProvider.invoice("inv-1", "order-1", true));
+        AsyncInvoicingProvider provider = AsyncInvoicingProvider.onVirtualThreads(backend, 4);
+
+        Invoice invoice = provider.fetchInvoiceById("inv-1", InvoiceDirection.Sale).get(5, TimeUnit.SECONDS);
+        Map<String, List<Invoice>> byOrder = provider.fetchInvoicesByOrderIds(List.of("order-1"), InvoiceDirection.Sale).get(5, TimeUnit.SECONDS);
+
+        assertThat(invoice.id()).isEqualTo("inv-1");
+        assertThat(byOrder.get("order-1")).containsExactly(invoice);
+        assertThat(virtual[0]).isTrue();
+    }
+
+    @Test
+    void shouldCompleteExceptionallyWithProviderException() {
+        AsyncInvoicingProvider provider = AsyncInvoicingProvider.onVirtualThreads(new FakeInvoicingProvider(), 4);
+
+        CompletableFuture<Invoice> future = provider.createInvoice(InvoiceRequest.finalInvoice().build());
+
+        assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldCompleteExceptionallyWithIoException() {
+        FakeInvoicingProvider backend = new FakeInvoicingProvider();
+        backend.invoices.put("inv-1", FakeInvoicingProvider.invoice("inv-1", "order-1", true));
+        AsyncInvoicingProvider provider = AsyncInvoicingProvider.onVirtualThreads(backend, 4);
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("disk full");
+            }
+        };
+
+        assertThatThrownBy(() -> provider.writeInvoicePdf("inv-1", broken).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    void shouldCapConcurrency() throws Exception {
+        CountDownLatch entered = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        FakeInvoicingProvider backend = new FakeInvoicingProvider() {
+            @Override
+            public byte[] fetchInvoicePdf(String invoiceId) {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                entered.countDown();
+                await(release);
+                inFlight.decrementAndGet();
+                return new byte[0];
+            }
+        };
+        AsyncInvoicingProvider provider = AsyncInvoicingProvider.onVirtualThreads(backend, 2);
+
+        List<CompletableFuture<byte[]>> futures = List.of(
+                provider.fetchInvoicePdf("1"), provider.fetchInvoicePdf("2"), provider.fetchInvoicePdf("3"));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(futures).filteredOn(CompletableFuture::isDone).isEmpty();
+        release.countDown();
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        assertThat(maxInFlight.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldTakeOnePermitPerBatchElement() throws Exception {
+        CountDownLatch entered = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        FakeInvoicingProvider backend = new FakeInvoicingProvider() {
+            @Override
+            public Invoice createInvoice(InvoiceRequest request) {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                entered.countDown();
+                await(release);
+                inFlight.decrementAndGet();
+                return super.createInvoice(request);
+            }
+        };
+        AsyncInvoicingProvider provider = AsyncInvoicingProvider.onVirtualThreads(backend, 2);
+        List<InvoiceRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            requests.add(InvoiceRequest.finalInvoice().orderId(i == 3 ? null : "order-" + i).build());
+        }
+
+        CompletableFuture<List<InvoiceCreationResult>> future = provider.createInvoices(requests);
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+        List<InvoiceCreationResult> results = future.get(5, TimeUnit.SECONDS);
+
+        assertThat(maxInFlight.get()).isEqualTo(2);
+        assertThat(results).extracting(InvoiceCreationResult::request).containsExactlyElementsOf(requests);
+        assertThat(results.get(3).failure()).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldHoldPdfPermitUntilStreamIsClosed() throws Exception {
+        CountDownLatch fetched = new CountDownLatch(1);
+        FakeInvoicingProvider backend = new FakeInvoicingProvider() {
+            @Override
+            public byte[] fetchInvoicePdf(String invoiceId) {
+                fetched.countDown();
+                return super.fetchInvoicePdf(invoiceId);
+            }
+
+            @Override
+            public InputStream openInvoicePdf(String invoiceId) {
+                return new ByteArrayInputStream(("%PDF " + invoiceId).getBytes());
+            }
+        };
+        backend.invoices.put("inv-1", FakeInvoicingProvider.invoice("inv-1", "order-1", true));
+        AsyncInvoicingProvider provider = AsyncInvoicingProvider.onVirtualThreads(backend, 1);
+
+        InputStream pdf = provider.openInvoicePdf("inv-1").get(5, TimeUnit.SECONDS);
+        CompletableFuture<byte[]> waiting = provider.fetchInvoicePdf("inv-1");
+        assertThat(fetched.await(100, TimeUnit.MILLISECONDS)).isFalse();
+
+        pdf.close();
+
+        assertThat(waiting.get(5, TimeUnit.SECONDS)).isEqualTo("%PDF inv-1".getBytes());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}